@@ -0,0 +1,181 @@
+package it.dominick.th.bench;
+
+import it.dominick.th.manager.TreasureIndex;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.util.KdTree;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class NearestNeighborsBenchmark {
+
+    private static final String WORLD = "world";
+    private static final int SPREAD = 20000;
+    private static final double MAX_DISTANCE = 1e9;
+
+    public static void main(String[] args) {
+        int treasures = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 7L;
+
+        Random random = new Random(seed);
+        verify(random, treasures);
+        benchmark(random, treasures, queries);
+    }
+
+    private static void verify(Random random, int treasures) {
+        List<TreasureRecord> records = new ArrayList<>(treasures);
+        for (int key = 1; key <= treasures; key++) {
+            records.add(randomRecord(random, key, key % 5 == 0 ? "world_nether" : WORLD));
+        }
+
+        TreasureIndex index = new TreasureIndex();
+        index.rebuild(records);
+        Map<Integer, TreasureRecord> live = new HashMap<>();
+        for (TreasureRecord record : records) {
+            live.put(record.getKey(), record);
+        }
+        Set<Integer> exclude = randomExclusions(random, treasures);
+
+        int checked = 0;
+        int nextKey = treasures + 1;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                TreasureRecord previous = live.get(1 + random.nextInt(treasures));
+                if (previous == null) {
+                    continue;
+                }
+                if (random.nextBoolean()) {
+                    index.remove(previous);
+                    live.remove(previous.getKey());
+                } else {
+                    TreasureRecord moved = randomRecord(random, previous.getKey(), previous.getWorld());
+                    index.put(previous, moved);
+                    live.put(moved.getKey(), moved);
+                }
+            }
+            for (int i = 0; i < 20; i++) {
+                TreasureRecord added = randomRecord(random, nextKey++, WORLD);
+                index.put(null, added);
+                live.put(added.getKey(), added);
+            }
+
+            for (int q = 0; q < 10; q++) {
+                double x = random.nextInt(SPREAD) - SPREAD / 2 + random.nextDouble();
+                double y = random.nextInt(256) - 64 + random.nextDouble();
+                double z = random.nextInt(SPREAD) - SPREAD / 2 + random.nextDouble();
+                int k = 1 + random.nextInt(10);
+
+                List<TreasureRecord> expected = sortedScan(live.values(), x, y, z, k, exclude);
+                List<TreasureRecord> actual = index.nearestNeighbors(WORLD, x, y, z, k, MAX_DISTANCE, exclude);
+                if (actual.size() != expected.size()) {
+                    throw new IllegalStateException("nearestNeighbors returned " + actual.size() + " treasures, expected " + expected.size());
+                }
+                for (int i = 0; i < actual.size(); i++) {
+                    if (Math.abs(distanceSquared(actual.get(i), x, y, z) - distanceSquared(expected.get(i), x, y, z)) > 1e-6) {
+                        throw new IllegalStateException("nearestNeighbors mismatch at rank " + i + ": " + actual.get(i).getId() + " vs " + expected.get(i).getId());
+                    }
+                }
+
+                double radius = 200 + random.nextInt(800);
+                int inside = 0;
+                for (TreasureRecord record : live.values()) {
+                    if (record.getWorld().equals(WORLD) && !exclude.contains(record.getKey()) && distanceSquared(record, x, y, z) <= radius * radius) {
+                        inside++;
+                    }
+                }
+                List<TreasureRecord> within = index.within(WORLD, x, y, z, radius, exclude);
+                if (within.size() != inside || new HashSet<>(within).size() != inside) {
+                    throw new IllegalStateException("within returned " + within.size() + " treasures, expected " + inside);
+                }
+                checked++;
+            }
+        }
+        System.out.println("Equivalence check passed for " + checked + " queries against a brute-force scan");
+    }
+
+    private static void benchmark(Random random, int treasures, int queries) {
+        List<TreasureRecord> records = new ArrayList<>(treasures);
+        for (int key = 1; key <= treasures; key++) {
+            records.add(randomRecord(random, key, WORLD));
+        }
+        TreasureIndex index = new TreasureIndex();
+        index.rebuild(records);
+        Set<Integer> exclude = randomExclusions(random, treasures);
+
+        double[][] points = new double[queries][3];
+        for (double[] point : points) {
+            point[0] = random.nextInt(SPREAD) - SPREAD / 2;
+            point[1] = 64;
+            point[2] = random.nextInt(SPREAD) - SPREAD / 2;
+        }
+        int linearQueries = Math.max(1, Math.min(queries, 200));
+
+        long sink = 0;
+        for (int pass = 1; pass <= 3; pass++) {
+            long start = System.nanoTime();
+            for (double[] point : points) {
+                sink += index.nearestNeighbors(WORLD, point[0], point[1], point[2], 5, MAX_DISTANCE, exclude).size();
+            }
+            long tree = (System.nanoTime() - start) / points.length;
+
+            start = System.nanoTime();
+            for (int i = 0; i < linearQueries; i++) {
+                sink += heapScan(records, points[i][0], points[i][1], points[i][2], 5, exclude).size();
+            }
+            long linear = (System.nanoTime() - start) / linearQueries;
+
+            System.out.println("pass " + pass + ": " + treasures + " treasures, k=5, kd-tree " + tree + " ns/query, linear heap scan " + linear + " ns/query");
+        }
+        if (sink == 0) {
+            System.out.println("No neighbors found");
+        }
+    }
+
+    private static TreasureRecord randomRecord(Random random, int key, String world) {
+        return new TreasureRecord(key, "bench" + key, world,
+                random.nextInt(SPREAD) - SPREAD / 2, random.nextInt(256) - 64, random.nextInt(SPREAD) - SPREAD / 2, "none", 0L);
+    }
+
+    private static Set<Integer> randomExclusions(Random random, int treasures) {
+        Set<Integer> exclude = new HashSet<>();
+        for (int i = 0; i < treasures / 5; i++) {
+            exclude.add(1 + random.nextInt(treasures));
+        }
+        return exclude;
+    }
+
+    private static List<TreasureRecord> sortedScan(Collection<TreasureRecord> records, double x, double y, double z, int k, Set<Integer> exclude) {
+        List<TreasureRecord> candidates = new ArrayList<>();
+        for (TreasureRecord record : records) {
+            if (record.getWorld().equals(WORLD) && !exclude.contains(record.getKey())) {
+                candidates.add(record);
+            }
+        }
+        candidates.sort((a, b) -> Double.compare(distanceSquared(a, x, y, z), distanceSquared(b, x, y, z)));
+        return candidates.subList(0, Math.min(k, candidates.size()));
+    }
+
+    private static List<TreasureRecord> heapScan(List<TreasureRecord> records, double x, double y, double z, int k, Set<Integer> exclude) {
+        KdTree.Neighbors<TreasureRecord> neighbors = new KdTree.Neighbors<>(k, MAX_DISTANCE);
+        for (TreasureRecord record : records) {
+            if (record.getWorld().equals(WORLD) && !exclude.contains(record.getKey())) {
+                neighbors.offer(record, distanceSquared(record, x, y, z));
+            }
+        }
+        return neighbors.toSortedList();
+    }
+
+    private static double distanceSquared(TreasureRecord record, double x, double y, double z) {
+        double dx = record.getX() + 0.5 - x;
+        double dy = record.getY() + 0.5 - y;
+        double dz = record.getZ() + 0.5 - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+}
@@ -28,9 +28,20 @@ public abstract class CmdTreasureHunt implements BasicCommand {
         this.helpArgument = new HelpArgument(config);
         registerArgument("help", helpArgument);
         registerArgument("create", new CreateArgument(config));
+        registerArgument("build", new BuildArgument(config));
         registerArgument("list", new ListArgument(config));
         registerArgument("delete", new DeleteArgument(config));
         registerArgument("completed", new CompletedArgument(config));
+        registerArgument("history", new HistoryArgument(config));
+        registerArgument("import", new ImportArgument(config));
+        registerArgument("markers", new MarkersArgument(config));
+        registerArgument("nearest", new NearestArgument(config));
+        registerArgument("export", new ExportArgument(config));
+        registerArgument("reset", new ResetArgument(config));
+        registerArgument("season", new SeasonArgument(config));
+        registerArgument("store", new StoreArgument(config));
+        registerArgument("status", new StatusArgument(config));
+        registerArgument("top", new TopArgument(config));
     }
 
     protected void registerArgument(String name, Argument argument) {
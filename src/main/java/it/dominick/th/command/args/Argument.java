@@ -34,6 +34,27 @@ public abstract class Argument {
         return args.length < minimumArgs();
     }
 
+    protected int parsePage(String[] args, int index) {
+        if (args.length <= index) {
+            return 1;
+        }
+
+        try {
+            return Math.max(1, Integer.parseInt(args[index]));
+        } catch (NumberFormatException ex) {
+            return 1;
+        }
+    }
+
+    protected boolean hasFlag(String[] args, int from, String flag) {
+        for (int i = from; i < args.length; i++) {
+            if (args[i].equalsIgnoreCase(flag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public List<String> completation(Player player, String[] args) {
         return ImmutableList.of();
     }
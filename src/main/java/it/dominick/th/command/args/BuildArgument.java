@@ -0,0 +1,77 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasurePlacementManager;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+
+public class BuildArgument extends Argument {
+
+    public BuildArgument(ConfigManager config) {
+        super(config, "/th build <start <prefix> <cmd>|finish|cancel>", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        TreasurePlacementManager manager = TreasureHunt.getInstance().getTreasureManager().getPlacementManager();
+
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "start" -> {
+                if (args.length < 4) {
+                    ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+                    return;
+                }
+                StringBuilder sb = new StringBuilder();
+                for (int i = 3; i < args.length; i++) {
+                    if (i > 3) sb.append(' ');
+                    sb.append(args[i]);
+                }
+                manager.startSession(player, args[2], sb.toString());
+            }
+            case "finish" -> {
+                int placed = manager.getSessionSize(player.getUniqueId());
+                if (placed < 0) {
+                    ChatUtils.send(player, config.getString("buildCmd.no-session"));
+                    return;
+                }
+
+                ChatUtils.send(player, config.getString("buildCmd.saving"), "%count%", String.valueOf(placed));
+                manager.finishSession(player.getUniqueId()).whenComplete((count, ex) -> {
+                    if (ex != null || count < 0) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        ChatUtils.send(player, config.getString("buildCmd.error"), "%error%", cause != null ? String.valueOf(cause.getMessage()) : "database error");
+                        return;
+                    }
+                    ChatUtils.send(player, config.getString("buildCmd.finished"), "%count%", String.valueOf(count));
+                });
+            }
+            case "cancel" -> {
+                int discarded = manager.cancelSession(player.getUniqueId());
+                if (discarded < 0) {
+                    ChatUtils.send(player, config.getString("buildCmd.no-session"));
+                    return;
+                }
+                ChatUtils.send(player, config.getString("buildCmd.cancelled"), "%count%", String.valueOf(discarded));
+            }
+            default -> ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+        }
+    }
+
+    @Override
+    public List<String> completation(Player player, String[] args) {
+        if (args.length == 2) {
+            return List.of("start", "finish", "cancel");
+        }
+        return List.of();
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
@@ -3,34 +3,47 @@ package it.dominick.th.command.args;
 import it.dominick.th.TreasureHunt;
 import it.dominick.th.config.ConfigManager;
 import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.model.RedemptionRecord;
 import it.dominick.th.util.ChatUtils;
 import org.bukkit.entity.Player;
 
 public class CompletedArgument extends Argument {
 
     public CompletedArgument(ConfigManager config) {
-        super(config, "/th completed <id>", "treasurehunt.admin");
+        super(config, "/th completed <id> [page] [archive]", "treasurehunt.admin");
     }
 
     @Override
     public void execute(Player player, String[] args) {
         String id = args[1];
+        int page = parsePage(args, 2);
+        boolean archived = hasFlag(args, 2, "archive");
         TreasureManager manager = TreasureHunt.getInstance().getTreasureManager();
 
-        manager.getPlayersWhoRedeemed(id).thenAccept(list -> {
-            if (list == null || list.isEmpty()) {
+        manager.getCompletedPage(player.getUniqueId(), id, page, archived).thenAccept(result -> {
+            if (result.isEmpty()) {
                 ChatUtils.send(player, config.getString("completedCmd.empty"), "%id%", id);
                 return;
             }
 
-            ChatUtils.send(player, config.getString("completedCmd.header"), "%id%", id);
+            ChatUtils.send(player, config.getString("completedCmd.header"),
+                    "%id%", id,
+                    "%page%", String.valueOf(page));
 
             String rawItem = config.getString("completedCmd.item");
 
-            for (String name : list) {
-                final String line = rawItem.replace("%player%", name);
+            for (RedemptionRecord r : result.getEntries()) {
+                final String line = rawItem
+                        .replace("%player%", result.getNames().getOrDefault(r.getPlayer(), manager.resolveName(r.getPlayer())))
+                        .replace("%date%", ChatUtils.formatDate(r.getRedeemedAt()));
                 ChatUtils.send(player, line);
             }
+
+            if (result.isHasMore()) {
+                ChatUtils.send(player, config.getString("completedCmd.more"),
+                        "%id%", id,
+                        "%next%", (page + 1) + (archived ? " archive" : ""));
+            }
         });
     }
 
@@ -0,0 +1,44 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.util.concurrent.CompletionException;
+
+public class ExportArgument extends Argument {
+
+    public ExportArgument(ConfigManager config) {
+        super(config, "/th export <file>", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        String file = args[1];
+        TreasureManager manager = TreasureHunt.getInstance().getTreasureManager();
+        long start = System.currentTimeMillis();
+
+        ChatUtils.send(player, config.getString("transferCmd.export-started"), "%file%", file);
+        manager.getTransfer().exportFile(file).whenComplete((count, ex) -> {
+            if (ex != null || count < 0) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                ChatUtils.send(player, config.getString("transferCmd.export-error"),
+                        "%file%", file,
+                        "%error%", cause != null ? String.valueOf(cause.getMessage()) : "database error");
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("transferCmd.export-success"),
+                    "%file%", file,
+                    "%count%", String.valueOf(count),
+                    "%millis%", String.valueOf(System.currentTimeMillis() - start));
+        });
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
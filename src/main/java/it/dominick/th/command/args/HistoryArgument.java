@@ -0,0 +1,68 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.model.RedemptionRecord;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+public class HistoryArgument extends Argument {
+
+    public HistoryArgument(ConfigManager config) {
+        super(config, "/th history <player> [page] [archive]", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        String name = args[1];
+        int page = parsePage(args, 2);
+        boolean archived = hasFlag(args, 2, "archive");
+        TreasureManager manager = TreasureHunt.getInstance().getTreasureManager();
+
+        OfflinePlayer target = Bukkit.getPlayerExact(name);
+        if (target == null) {
+            target = Bukkit.getOfflinePlayerIfCached(name);
+        }
+
+        if (target == null) {
+            ChatUtils.send(player, config.getString("historyCmd.not-found"), "%player%", name);
+            return;
+        }
+
+        manager.getHistoryPage(player.getUniqueId(), target.getUniqueId(), page, archived).thenAccept(result -> {
+            if (result.isEmpty()) {
+                ChatUtils.send(player, config.getString("historyCmd.empty"), "%player%", name);
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("historyCmd.header"),
+                    "%player%", name,
+                    "%page%", String.valueOf(page));
+
+            String rawItem = config.getString("historyCmd.item");
+
+            for (RedemptionRecord r : result.getEntries()) {
+                TreasureRecord treasure = manager.getTreasureByKey(r.getTreasureKey());
+                final String line = rawItem
+                        .replace("%id%", treasure != null ? treasure.getId() : "#" + r.getTreasureKey())
+                        .replace("%date%", ChatUtils.formatDate(r.getRedeemedAt()));
+                ChatUtils.send(player, line);
+            }
+
+            if (result.isHasMore()) {
+                ChatUtils.send(player, config.getString("historyCmd.more"),
+                        "%player%", name,
+                        "%next%", (page + 1) + (archived ? " archive" : ""));
+            }
+        });
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
@@ -0,0 +1,44 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.util.concurrent.CompletionException;
+
+public class ImportArgument extends Argument {
+
+    public ImportArgument(ConfigManager config) {
+        super(config, "/th import <file>", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        String file = args[1];
+        TreasureManager manager = TreasureHunt.getInstance().getTreasureManager();
+        long start = System.currentTimeMillis();
+
+        ChatUtils.send(player, config.getString("transferCmd.import-started"), "%file%", file);
+        manager.getTransfer().importFile(file).whenComplete((count, ex) -> {
+            if (ex != null || count < 0) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                ChatUtils.send(player, config.getString("transferCmd.import-error"),
+                        "%file%", file,
+                        "%error%", cause != null ? String.valueOf(cause.getMessage()) : "database error");
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("transferCmd.import-success"),
+                    "%file%", file,
+                    "%count%", String.valueOf(count),
+                    "%millis%", String.valueOf(System.currentTimeMillis() - start));
+        });
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
@@ -35,7 +35,8 @@ public class ListArgument extends Argument {
                     "%id%", r.getId(),
                     "%world%", r.getWorld(),
                     "%pos%", r.getX() + "," + r.getY() + "," + r.getZ(),
-                    "%cmd%", r.getCommand());
+                    "%cmd%", r.getCommand(),
+                    "%claims%", String.valueOf(manager.getLeaderboard().getClaims(r.getKey())));
         }
     }
 
@@ -0,0 +1,36 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasureMarkers;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+public class MarkersArgument extends Argument {
+
+    public MarkersArgument(ConfigManager config) {
+        super(config, "/th markers", TreasureMarkers.PERMISSION);
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        TreasureMarkers markers = TreasureHunt.getInstance().getTreasureManager().getMarkers();
+        if (!markers.isEnabled()) {
+            ChatUtils.send(player, config.getString("markersCmd.disabled"));
+            return;
+        }
+
+        if (markers.isShown(player.getUniqueId())) {
+            int hidden = markers.hide(player);
+            ChatUtils.send(player, config.getString("markersCmd.hidden"), "%count%", String.valueOf(hidden));
+        } else {
+            int shown = markers.show(player);
+            ChatUtils.send(player, config.getString("markersCmd.shown"), "%count%", String.valueOf(shown));
+        }
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 1;
+    }
+}
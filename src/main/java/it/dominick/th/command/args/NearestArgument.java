@@ -0,0 +1,84 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+public class NearestArgument extends Argument {
+
+    private static final int MAX_RESULTS = 5;
+
+    public NearestArgument(ConfigManager config) {
+        super(config, "/th nearest [count]", "treasurehunt.nearest");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        TreasureHunt plugin = TreasureHunt.getInstance();
+        TreasureManager manager = plugin.getTreasureManager();
+        Location location = player.getLocation();
+        World world = location.getWorld();
+        if (world == null) {
+            return;
+        }
+
+        int count = Math.min(MAX_RESULTS, parsePage(args, 1));
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
+
+        manager.getSessionManager().getRedeemed(player.getUniqueId()).thenAccept(redeemed -> {
+            List<TreasureRecord> nearest = manager.getNearestUnclaimed(world.getName(), x, y, z, count, redeemed);
+            if (nearest.isEmpty()) {
+                ChatUtils.send(player, config.getString("nearestCmd.none"));
+                return;
+            }
+
+            TreasureRecord target = nearest.get(0);
+            Bukkit.getScheduler().runTask(plugin, () -> player.setCompassTarget(
+                    new Location(world, target.getX() + 0.5, target.getY(), target.getZ() + 0.5)));
+
+            ChatUtils.send(player, config.getString("nearestCmd.compass"),
+                    "%id%", target.getId(),
+                    "%distance%", distance(target, x, y, z));
+            if (nearest.size() > 1) {
+                for (TreasureRecord r : nearest) {
+                    ChatUtils.send(player, config.getString("nearestCmd.entry"),
+                            "%id%", r.getId(),
+                            "%distance%", distance(r, x, y, z));
+                }
+            }
+        }).exceptionally(ex -> {
+            ChatUtils.send(player, config.getString("nearestCmd.error"));
+            return null;
+        });
+    }
+
+    private static String distance(TreasureRecord r, double x, double y, double z) {
+        double dx = r.getX() + 0.5 - x;
+        double dy = r.getY() + 0.5 - y;
+        double dz = r.getZ() + 0.5 - z;
+        return String.valueOf(Math.round(Math.sqrt(dx * dx + dy * dy + dz * dz)));
+    }
+
+    @Override
+    public List<String> completation(Player player, String[] args) {
+        if (args.length == 2) {
+            return List.of("1", "3", "5");
+        }
+        return List.of();
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 1;
+    }
+}
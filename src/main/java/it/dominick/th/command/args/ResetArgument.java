@@ -0,0 +1,115 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.model.ResetScope;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ResetArgument extends Argument {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    public ResetArgument(ConfigManager config) {
+        super(config, "/th reset <treasure <id>|player <name>|all confirm>", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        TreasureManager manager = TreasureHunt.getInstance().getTreasureManager();
+        String type = args[1].toLowerCase(Locale.ROOT);
+        String target = args.length > 2 ? args[2] : null;
+
+        ResetScope scope;
+        int treasureKey = 0;
+        UUID playerId = null;
+        String label;
+
+        switch (type) {
+            case "treasure" -> {
+                TreasureRecord treasure = target != null ? manager.getCachedTreasures().get(target) : null;
+                if (treasure == null) {
+                    ChatUtils.send(player, config.getString("deleteCmd.not-found"));
+                    return;
+                }
+                scope = ResetScope.TREASURE;
+                treasureKey = treasure.getKey();
+                label = treasure.getId();
+            }
+            case "player" -> {
+                OfflinePlayer found = target != null ? Bukkit.getPlayerExact(target) : null;
+                if (found == null && target != null) {
+                    found = Bukkit.getOfflinePlayerIfCached(target);
+                }
+                if (found == null) {
+                    ChatUtils.send(player, config.getString("historyCmd.not-found"), "%player%", String.valueOf(target));
+                    return;
+                }
+                scope = ResetScope.PLAYER;
+                playerId = found.getUniqueId();
+                label = target;
+            }
+            case "all" -> {
+                if (!"confirm".equalsIgnoreCase(target)) {
+                    ChatUtils.send(player, config.getString("resetCmd.confirm-all"));
+                    return;
+                }
+                scope = ResetScope.ALL;
+                label = "all";
+            }
+            default -> {
+                ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+                return;
+            }
+        }
+
+        ChatUtils.send(player, config.getString("resetCmd.started"), "%target%", label);
+
+        AtomicLong lastReport = new AtomicLong(System.nanoTime());
+        manager.resetRedemptions(scope, treasureKey, playerId, deleted -> {
+            long now = System.nanoTime();
+            long last = lastReport.get();
+            if (now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                ChatUtils.send(player, config.getString("resetCmd.progress"),
+                        "%target%", label,
+                        "%count%", String.valueOf(deleted));
+            }
+        }).whenComplete((deleted, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                ChatUtils.send(player, config.getString("resetCmd.error"),
+                        "%target%", label,
+                        "%error%", String.valueOf(cause.getMessage()));
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("resetCmd.done"),
+                    "%target%", label,
+                    "%count%", String.valueOf(deleted));
+        });
+    }
+
+    @Override
+    public List<String> completation(Player player, String[] args) {
+        if (args.length == 2) {
+            return List.of("treasure", "player", "all");
+        }
+        return List.of();
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
@@ -0,0 +1,162 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.SeasonManager;
+import it.dominick.th.model.Season;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SeasonArgument extends Argument {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    public SeasonArgument(ConfigManager config) {
+        super(config, "/th season <start <name>|close|list|archive <name> confirm|archive before <yyyy-MM-dd> confirm>", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        SeasonManager seasons = TreasureHunt.getInstance().getTreasureManager().getSeasonManager();
+
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "start" -> {
+                if (args.length < 3) {
+                    ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+                    return;
+                }
+                String name = args[2];
+                seasons.startSeason(name).thenAccept(season -> {
+                    if (season == null) {
+                        ChatUtils.send(player, config.getString("seasonCmd.start-error"), "%season%", name);
+                        return;
+                    }
+                    ChatUtils.send(player, config.getString("seasonCmd.started"), "%season%", season.getName());
+                });
+            }
+            case "close" -> seasons.closeSeason().thenAccept(closed ->
+                    ChatUtils.send(player, config.getString(closed ? "seasonCmd.closed" : "seasonCmd.no-open")));
+            case "list" -> seasons.getSeasons().thenAccept(list -> {
+                if (list.isEmpty()) {
+                    ChatUtils.send(player, config.getString("seasonCmd.no-seasons"));
+                    return;
+                }
+
+                ChatUtils.send(player, config.getString("seasonCmd.list-header"));
+                for (Season season : list) {
+                    ChatUtils.send(player, config.getString("seasonCmd.list-item"),
+                            "%season%", season.getName(),
+                            "%from%", ChatUtils.formatDate(season.getStartedAt()),
+                            "%to%", season.isOpen() ? "now" : ChatUtils.formatDate(season.getClosedAt()),
+                            "%status%", season.isArchived() ? "archived" : season.isOpen() ? "open" : "closed");
+                }
+            });
+            case "archive" -> archive(player, seasons, args);
+            default -> ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+        }
+    }
+
+    private void archive(Player player, SeasonManager seasons, String[] args) {
+        if (args.length < 3) {
+            ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+            return;
+        }
+
+        AtomicLong lastReport = new AtomicLong(System.nanoTime());
+
+        if (args[2].equalsIgnoreCase("before")) {
+            if (args.length < 4) {
+                ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+                return;
+            }
+
+            long cutoff;
+            try {
+                cutoff = LocalDate.parse(args[3]).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            } catch (DateTimeParseException ex) {
+                ChatUtils.send(player, config.getString("seasonCmd.invalid-date"), "%date%", args[3]);
+                return;
+            }
+
+            String label = "before " + args[3];
+            if (!confirmed(player, args, 4, label, "/th season archive before " + args[3] + " confirm")) {
+                return;
+            }
+            ChatUtils.send(player, config.getString("seasonCmd.archive-started"), "%target%", label);
+            report(player, label, seasons.archiveBefore(cutoff, moved -> progress(player, label, moved, lastReport)));
+            return;
+        }
+
+        String name = args[2];
+        if (!confirmed(player, args, 3, name, "/th season archive " + name + " confirm")) {
+            return;
+        }
+        seasons.getSeasons().thenAccept(list -> {
+            Season season = list.stream().filter(s -> s.getName().equalsIgnoreCase(name)).findFirst().orElse(null);
+            if (season == null) {
+                ChatUtils.send(player, config.getString("seasonCmd.not-found"), "%season%", name);
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("seasonCmd.archive-started"), "%target%", season.getName());
+            report(player, season.getName(), seasons.archiveSeason(season, moved -> progress(player, season.getName(), moved, lastReport)));
+        });
+    }
+
+    private boolean confirmed(Player player, String[] args, int index, String label, String confirmCommand) {
+        if (args.length > index && args[index].equalsIgnoreCase("confirm")) {
+            return true;
+        }
+        ChatUtils.send(player, config.getString("seasonCmd.confirm-archive"), "%target%", label, "%command%", confirmCommand);
+        return false;
+    }
+
+    private void progress(Player player, String label, long moved, AtomicLong lastReport) {
+        long now = System.nanoTime();
+        long last = lastReport.get();
+        if (now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+            ChatUtils.send(player, config.getString("seasonCmd.archive-progress"),
+                    "%target%", label,
+                    "%count%", String.valueOf(moved));
+        }
+    }
+
+    private void report(Player player, String label, CompletableFuture<Long> archive) {
+        archive.whenComplete((moved, ex) -> {
+            if (ex != null) {
+                Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                ChatUtils.send(player, config.getString("seasonCmd.archive-error"),
+                        "%target%", label,
+                        "%error%", String.valueOf(cause.getMessage()));
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("seasonCmd.archive-done"),
+                    "%target%", label,
+                    "%count%", String.valueOf(moved));
+        });
+    }
+
+    @Override
+    public List<String> completation(Player player, String[] args) {
+        if (args.length == 2) {
+            return List.of("start", "close", "list", "archive");
+        }
+        return List.of();
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
@@ -0,0 +1,68 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.ProximityHints;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.repository.CircuitBreaker;
+import it.dominick.th.repository.DatabaseRepository;
+import it.dominick.th.repository.QueryIntent;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.util.Locale;
+
+public class StatusArgument extends Argument {
+
+    public StatusArgument(ConfigManager config) {
+        super(config, "/th status", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        TreasureHunt plugin = TreasureHunt.getInstance();
+        DatabaseRepository db = plugin.getDatabaseRepository();
+        TreasureManager manager = plugin.getTreasureManager();
+        CircuitBreaker breaker = db.getCircuitBreaker();
+
+        ChatUtils.send(player, config.getString("statusCmd.header"));
+        if (breaker.getState() == CircuitBreaker.State.CLOSED) {
+            ChatUtils.send(player, config.getString("statusCmd.database-ok"));
+        } else {
+            ChatUtils.send(player, config.getString("statusCmd.database-down"),
+                    "%state%", breaker.getState().name(),
+                    "%seconds%", String.valueOf((System.currentTimeMillis() - breaker.getOpenedAt()) / 1000),
+                    "%error%", String.valueOf(breaker.getLastError()));
+        }
+
+        for (QueryIntent intent : QueryIntent.values()) {
+            if (intent != QueryIntent.WRITE && !db.isSeparate(intent)) {
+                continue;
+            }
+            ChatUtils.send(player, config.getString("statusCmd.pool"),
+                    "%pool%", intent.name().toLowerCase(Locale.ROOT),
+                    "%active%", String.valueOf(db.getActiveCount(intent)),
+                    "%queued%", String.valueOf(db.getQueueDepth(intent)));
+        }
+        ChatUtils.send(player, config.getString("statusCmd.write-behind"),
+                "%depth%", String.valueOf(manager.getWriteQueue().getDepth()));
+        ChatUtils.send(player, config.getString("statusCmd.journal"),
+                "%depth%", String.valueOf(manager.getJournal().getDepth()),
+                "%state%", !manager.getJournal().isEnabled() ? "disabled" : manager.getJournal().isReplaying() ? "replaying" : "idle");
+
+        ProximityHints hints = manager.getProximityHints();
+        if (hints.isEnabled()) {
+            ChatUtils.send(player, config.getString("statusCmd.hints"),
+                    "%avg%", String.valueOf(hints.getLastCycleAvgNanos() / 1000),
+                    "%max%", String.valueOf(hints.getLastCycleMaxNanos() / 1000),
+                    "%sent%", String.valueOf(hints.getLastCycleHints()),
+                    "%skipped%", String.valueOf(hints.getLastCycleSkipped()),
+                    "%exhausted%", String.valueOf(hints.getExhaustedTicks()));
+        }
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 1;
+    }
+}
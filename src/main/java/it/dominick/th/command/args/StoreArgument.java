@@ -0,0 +1,72 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.RedemptionStore;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class StoreArgument extends Argument {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    public StoreArgument(ConfigManager config) {
+        super(config, "/th store <info|rebuild>", "treasurehunt.admin");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        RedemptionStore store = TreasureHunt.getInstance().getTreasureManager().getRedemptionStore();
+        if (!store.isEnabled()) {
+            ChatUtils.send(player, config.getString("storeCmd.disabled"));
+            return;
+        }
+
+        switch (args[1].toLowerCase(Locale.ROOT)) {
+            case "info" -> ChatUtils.send(player, config.getString("storeCmd.info"),
+                    "%players%", String.valueOf(store.getSize()),
+                    "%status%", store.isRebuilding() ? "rebuilding" : store.isComplete() ? "complete" : "partial");
+            case "rebuild" -> {
+                AtomicLong lastReport = new AtomicLong(System.nanoTime());
+                ChatUtils.send(player, config.getString("storeCmd.rebuild-started"));
+                store.rebuild(rows -> {
+                    long now = System.nanoTime();
+                    long last = lastReport.get();
+                    if (now - last >= PROGRESS_INTERVAL_NANOS && lastReport.compareAndSet(last, now)) {
+                        ChatUtils.send(player, config.getString("storeCmd.rebuild-progress"), "%count%", String.valueOf(rows));
+                    }
+                }).whenComplete((rows, ex) -> {
+                    if (ex != null) {
+                        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                        ChatUtils.send(player, config.getString("storeCmd.rebuild-error"), "%error%", String.valueOf(cause.getMessage()));
+                        return;
+                    }
+
+                    ChatUtils.send(player, config.getString("storeCmd.rebuild-done"),
+                            "%count%", String.valueOf(rows),
+                            "%players%", String.valueOf(store.getSize()));
+                });
+            }
+            default -> ChatUtils.send(player, config.getString("global.wrong-command-syntax"), "%command%", command());
+        }
+    }
+
+    @Override
+    public List<String> completation(Player player, String[] args) {
+        if (args.length == 2) {
+            return List.of("info", "rebuild");
+        }
+        return List.of();
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 2;
+    }
+}
@@ -0,0 +1,78 @@
+package it.dominick.th.command.args;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.manager.Leaderboard;
+import it.dominick.th.manager.TreasureManager;
+import it.dominick.th.model.PlayerCount;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+public class TopArgument extends Argument {
+
+    public TopArgument(ConfigManager config) {
+        super(config, "/th top [rebuild]", "treasurehunt.top");
+    }
+
+    @Override
+    public void execute(Player player, String[] args) {
+        TreasureManager manager = TreasureHunt.getInstance().getTreasureManager();
+        Leaderboard leaderboard = manager.getLeaderboard();
+
+        if (args.length > 1 && args[1].equalsIgnoreCase("rebuild")) {
+            if (!player.hasPermission("treasurehunt.admin")) {
+                ChatUtils.send(player, config.getString("global.insufficient-permission"));
+                return;
+            }
+
+            ChatUtils.send(player, config.getString("topCmd.rebuild-started"));
+            leaderboard.rebuild().whenComplete((count, ex) -> {
+                if (ex != null) {
+                    Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+                    ChatUtils.send(player, config.getString("topCmd.rebuild-error"), "%error%", String.valueOf(cause.getMessage()));
+                    return;
+                }
+                ChatUtils.send(player, config.getString("topCmd.rebuild-done"), "%players%", String.valueOf(count));
+            });
+            return;
+        }
+
+        int size = Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "leaderboard.size", 10));
+        List<PlayerCount> top = leaderboard.top(size);
+        if (top.isEmpty()) {
+            ChatUtils.send(player, config.getString("topCmd.empty"));
+            return;
+        }
+
+        int ranked = leaderboard.getRanked();
+        int found = leaderboard.getFound(player.getUniqueId());
+        manager.getNameCache().resolveAll(top.stream().map(PlayerCount::getPlayer).toList()).thenAccept(names -> {
+            ChatUtils.send(player, config.getString("topCmd.header"), "%ranked%", String.valueOf(ranked));
+            int rank = 1;
+            for (PlayerCount entry : top) {
+                ChatUtils.send(player, config.getString("topCmd.entry"),
+                        "%rank%", String.valueOf(rank++),
+                        "%player%", names.get(entry.getPlayer()),
+                        "%count%", String.valueOf(entry.getFound()));
+            }
+            ChatUtils.send(player, config.getString("topCmd.self"), "%count%", String.valueOf(found));
+        });
+    }
+
+    @Override
+    public List<String> completation(Player player, String[] args) {
+        if (args.length == 2 && player.hasPermission("treasurehunt.admin")) {
+            return List.of("rebuild");
+        }
+        return List.of();
+    }
+
+    @Override
+    public int minimumArgs() {
+        return 1;
+    }
+}
@@ -379,11 +379,22 @@ public class ConfigManager {
                 "<gradient:#209966:#67CB70><bold>TreasureHunt</bold> &7v" + version + "</gradient>",
                 "&7By Dominick12",
                 "&r",
-                "&e/th completed <id> &8- &7Returns the list of players who found that treasure",
+                "&e/th build <start <prefix> <cmd>|finish|cancel> &8- &7Place many treasures in a row with generated ids",
+                "&e/th completed <id> [page] [archive] &8- &7Returns the list of players who found that treasure",
                 "&e/th create <id> <command> &8- &7Create a treasure",
                 "&e/th delete <id> &8- &7Delete a treasure",
+                "&e/th export <file> &8- &7Export all treasures to a .csv or .json file",
                 "&e/th help &8- &7Show this menu",
+                "&e/th history <player> [page] [archive] &8- &7Show the treasures found by a player",
+                "&e/th import <file> &8- &7Import treasures from a .csv or .json file",
                 "&e/th list &8- &7Show the list of all treasures",
+                "&e/th markers &8- &7Toggle glowing markers on nearby unclaimed treasures",
+                "&e/th nearest [count] &8- &7Point your compass to the nearest treasure you have not found",
+                "&e/th reset <treasure|player|all> &8- &7Remove redemptions for a treasure, a player or everyone",
+                "&e/th season <start|close|list|archive> &8- &7Manage seasons and archive old redemptions",
+                "&e/th status &8- &7Show database health and the pending claim journal",
+                "&e/th store <info|rebuild> &8- &7Inspect or rebuild the local redemption store",
+                "&e/th top [rebuild] &8- &7Show the players who found the most treasures",
                 "&r"
         );
 
@@ -0,0 +1,213 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.ChangeEntry;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.repository.TreasureStorage;
+import lombok.Getter;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+public class ChangeLogPoller {
+
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final TreasureHunt plugin;
+    private final TreasureManager treasureManager;
+    private final TreasureStorage treasureRepo;
+
+    @Getter
+    private final boolean enabled;
+    private final long pollIntervalMillis;
+    private final int batchSize;
+    private final long gapGraceMillis;
+    private final long retentionMillis;
+
+    private ScheduledExecutorService poller;
+    @Getter
+    private volatile long lastId;
+    private long lastPrune;
+
+    public ChangeLogPoller(TreasureHunt plugin, TreasureManager treasureManager, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureManager = treasureManager;
+        this.treasureRepo = treasureRepo;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = treasureRepo.isChangeLogEnabled();
+        this.pollIntervalMillis = Math.max(50L, config.getLongOrDefault(ConfigFile.CONFIG, "sync.pollIntervalMillis", 1000L));
+        this.batchSize = Math.min(5000, Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "sync.batchSize", 500)));
+        this.gapGraceMillis = Math.max(0L, config.getLongOrDefault(ConfigFile.CONFIG, "sync.gapGraceMillis", 2000L));
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(Math.max(1L, config.getLongOrDefault(ConfigFile.CONFIG, "sync.retentionMinutes", 60L)));
+    }
+
+    public void start(long fromId) {
+        if (!enabled || poller != null) {
+            return;
+        }
+
+        this.lastId = fromId;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TH-Sync-Poller");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        plugin.getLogger().info("Change log sync enabled (node=" + treasureRepo.getNodeId() + ", interval=" + pollIntervalMillis + "ms, batch=" + batchSize + ")");
+    }
+
+    private void poll() {
+        if (!treasureRepo.isAvailable()) {
+            return;
+        }
+
+        try {
+            while (true) {
+                List<ChangeEntry> batch = treasureRepo.getChangesAfter(lastId, batchSize).join();
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+
+                int applied = apply(batch);
+                if (applied < batch.size() || batch.size() < batchSize) {
+                    break;
+                }
+            }
+            prune();
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to poll change log after id " + lastId, ex);
+        }
+    }
+
+    private int apply(List<ChangeEntry> batch) {
+        String nodeId = treasureRepo.getNodeId();
+        Set<String> upserted = new LinkedHashSet<>();
+        Set<UUID> resetPlayers = new HashSet<>();
+        Set<Integer> resetTreasures = new HashSet<>();
+        Set<UUID> countedPlayers = new HashSet<>();
+        Set<Integer> countedTreasures = new HashSet<>();
+        boolean bulk = false;
+        boolean resetAll = false;
+        boolean recount = false;
+        int applied = readyCount(batch, lastId, gapGraceMillis);
+
+        for (ChangeEntry entry : batch.subList(0, applied)) {
+            lastId = entry.getId();
+
+            if (nodeId.equals(entry.getOrigin()) || entry.getType() == null) {
+                continue;
+            }
+
+            switch (entry.getType()) {
+                case TREASURE_UPSERT -> upserted.add(entry.getTreasureId());
+                case TREASURE_BULK -> bulk = true;
+                case TREASURE_DELETE -> {
+                    upserted.remove(entry.getTreasureId());
+                    treasureManager.removeCached(entry.getTreasureId());
+                }
+                case REDEEM_ADD -> {
+                    treasureManager.getSessionManager().markRedeemed(entry.getPlayer(), entry.getTreasureKey());
+                    countedPlayers.add(entry.getPlayer());
+                    countedTreasures.add(entry.getTreasureKey());
+                }
+                case REDEEM_REMOVE -> {
+                    treasureManager.getSessionManager().markUnredeemed(entry.getPlayer(), entry.getTreasureKey());
+                    countedPlayers.add(entry.getPlayer());
+                    countedTreasures.add(entry.getTreasureKey());
+                }
+                case REDEEM_RESET -> {
+                    if (entry.getPlayer() != null) {
+                        resetPlayers.add(entry.getPlayer());
+                    } else if (entry.getTreasureKey() != 0) {
+                        resetTreasures.add(entry.getTreasureKey());
+                    } else {
+                        resetAll = true;
+                    }
+                }
+                case COUNTS_REBUILD -> recount = true;
+            }
+        }
+
+        if (recount || !resetTreasures.isEmpty()) {
+            treasureManager.getLeaderboard().countsStale(null, null);
+        } else if (!resetPlayers.isEmpty()) {
+            countedPlayers.addAll(resetPlayers);
+            treasureManager.getLeaderboard().countsStale(countedPlayers, null);
+        } else if (!countedPlayers.isEmpty()) {
+            treasureManager.getLeaderboard().countsStale(countedPlayers, countedTreasures);
+        }
+
+        if (resetAll) {
+            treasureManager.remoteResetAll();
+        } else {
+            resetPlayers.forEach(treasureManager.getSessionManager()::invalidate);
+            resetTreasures.forEach(treasureManager.getSessionManager()::forgetTreasure);
+        }
+
+        if (bulk) {
+            treasureManager.refreshCache().join();
+        } else if (!upserted.isEmpty()) {
+            List<TreasureRecord> records = treasureRepo.getTreasuresByIds(upserted).join();
+            if (records == null) {
+                treasureManager.refreshCache().join();
+            } else {
+                Set<String> found = new HashSet<>();
+                for (TreasureRecord record : records) {
+                    treasureManager.upsertCached(record);
+                    found.add(record.getId());
+                }
+                for (String id : upserted) {
+                    if (!found.contains(id)) {
+                        treasureManager.removeCached(id);
+                    }
+                }
+            }
+        }
+        return applied;
+    }
+
+    static int readyCount(List<ChangeEntry> batch, long afterId, long gapGraceMillis) {
+        long expected = afterId + 1;
+        for (int i = 0; i < batch.size(); i++) {
+            ChangeEntry entry = batch.get(i);
+            if (entry.getId() != expected && entry.getAgeMillis() < gapGraceMillis) {
+                return i;
+            }
+            expected = entry.getId() + 1;
+        }
+        return batch.size();
+    }
+
+    private void prune() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < PRUNE_INTERVAL_MILLIS) {
+            return;
+        }
+
+        lastPrune = now;
+        treasureRepo.pruneChanges(retentionMillis).join();
+    }
+
+    public void close() {
+        if (poller == null) {
+            return;
+        }
+
+        poller.shutdownNow();
+        try {
+            poller.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.model.PlayerCount;
+import it.dominick.th.repository.RedemptionCountListener;
+import it.dominick.th.repository.TreasureStorage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+
+public class Leaderboard implements RedemptionCountListener {
+
+    private static final Comparator<PlayerCount> RANKING = Comparator.comparingInt(PlayerCount::getFound).reversed()
+            .thenComparing(PlayerCount::getPlayer);
+
+    private final TreasureHunt plugin;
+    private final TreasureStorage treasureRepo;
+
+    private final Map<UUID, PlayerCount> players = new HashMap<>();
+    private final NavigableSet<PlayerCount> ranking = new TreeSet<>(RANKING);
+    private final Map<Integer, Integer> claims = new ConcurrentHashMap<>();
+
+    public Leaderboard(TreasureHunt plugin, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureRepo = treasureRepo;
+        treasureRepo.setCountListener(this);
+    }
+
+    public CompletableFuture<Void> load() {
+        return treasureRepo.getPlayerCounts(null).thenCombine(treasureRepo.getTreasureCounts(null), (playerCounts, treasureCounts) -> {
+            synchronized (this) {
+                players.clear();
+                ranking.clear();
+                playerCounts.forEach(this::set);
+            }
+            claims.keySet().retainAll(treasureCounts.keySet());
+            claims.putAll(treasureCounts);
+            plugin.getLogger().info("Loaded leaderboard with " + playerCounts.size() + " players");
+            return null;
+        });
+    }
+
+    public CompletableFuture<Integer> rebuild() {
+        return treasureRepo.rebuildCounts().thenCompose(count -> load().thenApply(v -> count));
+    }
+
+    public synchronized List<PlayerCount> top(int limit) {
+        List<PlayerCount> list = new ArrayList<>(Math.min(limit, ranking.size()));
+        for (PlayerCount entry : ranking) {
+            if (list.size() >= limit) {
+                break;
+            }
+            list.add(entry);
+        }
+        return list;
+    }
+
+    public synchronized int getFound(UUID player) {
+        PlayerCount entry = players.get(player);
+        return entry != null ? entry.getFound() : 0;
+    }
+
+    public synchronized int getRanked() {
+        return ranking.size();
+    }
+
+    public int getClaims(int treasureKey) {
+        return claims.getOrDefault(treasureKey, 0);
+    }
+
+    public void forgetTreasure(int treasureKey) {
+        claims.remove(treasureKey);
+    }
+
+    @Override
+    public void countsChanged(Map<UUID, Integer> playerDeltas, Map<Integer, Integer> treasureDeltas) {
+        synchronized (this) {
+            playerDeltas.forEach((player, delta) -> set(player, getFound(player) + delta));
+        }
+        treasureDeltas.forEach((key, delta) -> claims.compute(key, (k, current) -> {
+            int next = (current != null ? current : 0) + delta;
+            return next > 0 ? next : null;
+        }));
+    }
+
+    @Override
+    public void countsStale(Collection<UUID> stalePlayers, Collection<Integer> staleKeys) {
+        if (stalePlayers == null && staleKeys == null) {
+            load().exceptionally(ex -> {
+                plugin.getLogger().log(Level.WARNING, "Failed to reload leaderboard", ex);
+                return null;
+            });
+            return;
+        }
+
+        List<UUID> playerList = stalePlayers != null ? List.copyOf(stalePlayers) : null;
+        List<Integer> keyList = staleKeys != null ? List.copyOf(staleKeys) : null;
+        treasureRepo.getPlayerCounts(playerList).thenAccept(counts -> {
+            synchronized (this) {
+                if (playerList == null) {
+                    players.clear();
+                    ranking.clear();
+                    counts.forEach(this::set);
+                } else {
+                    playerList.forEach(player -> set(player, counts.getOrDefault(player, 0)));
+                }
+            }
+        }).thenCompose(v -> treasureRepo.getTreasureCounts(keyList)).thenAccept(counts -> {
+            if (keyList == null) {
+                claims.keySet().retainAll(counts.keySet());
+                claims.putAll(counts);
+            } else {
+                keyList.forEach(key -> {
+                    Integer count = counts.get(key);
+                    if (count != null) {
+                        claims.put(key, count);
+                    } else {
+                        claims.remove(key);
+                    }
+                });
+            }
+        }).exceptionally(ex -> {
+            plugin.getLogger().log(Level.WARNING, "Failed to reload stale leaderboard counters", ex);
+            return null;
+        });
+    }
+
+    private void set(UUID player, int found) {
+        PlayerCount previous = players.remove(player);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        if (found <= 0) {
+            return;
+        }
+
+        PlayerCount entry = new PlayerCount(player, found);
+        players.put(player, entry);
+        ranking.add(entry);
+    }
+}
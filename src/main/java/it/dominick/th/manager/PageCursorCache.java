@@ -0,0 +1,65 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.model.PageCursor;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class PageCursorCache {
+
+    private static final int MAX_VIEWERS = 256;
+    private static final int MAX_PAGES = 512;
+
+    private final Map<UUID, Browse> viewers = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Browse> eldest) {
+            return size() > MAX_VIEWERS;
+        }
+    };
+
+    public synchronized Position seek(UUID viewer, String query, int page) {
+        Browse browse = viewers.get(viewer);
+        if (browse == null || !browse.query.equals(query)) {
+            browse = new Browse(query);
+            viewers.put(viewer, browse);
+        }
+
+        int known = Math.min(page, browse.starts.size());
+        return new Position(known, browse.starts.get(known - 1));
+    }
+
+    public synchronized void record(UUID viewer, String query, int page, PageCursor start) {
+        Browse browse = viewers.get(viewer);
+        if (browse == null || !browse.query.equals(query) || page > MAX_PAGES) {
+            return;
+        }
+
+        if (page - 1 == browse.starts.size()) {
+            browse.starts.add(start);
+        }
+    }
+
+    public synchronized void invalidate(String query) {
+        viewers.values().removeIf(browse -> browse.query.equals(query));
+    }
+
+    public synchronized void clear() {
+        viewers.clear();
+    }
+
+    public record Position(int page, PageCursor cursor) {
+    }
+
+    private static class Browse {
+        final String query;
+        final List<PageCursor> starts = new ArrayList<>();
+
+        Browse(String query) {
+            this.query = query;
+            this.starts.add(null);
+        }
+    }
+}
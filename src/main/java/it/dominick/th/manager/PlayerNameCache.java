@@ -0,0 +1,101 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.repository.TreasureStorage;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public class PlayerNameCache implements Listener {
+
+    private final TreasureStorage treasureRepo;
+    private final Map<UUID, String> names;
+
+    public PlayerNameCache(TreasureHunt plugin, TreasureStorage treasureRepo) {
+        this.treasureRepo = treasureRepo;
+        int capacity = Math.max(100, plugin.getConfigManager().getIntOrDefault(ConfigFile.CONFIG, "listing.nameCacheSize", 10000));
+        this.names = new LinkedHashMap<>(Math.min(capacity, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, String> eldest) {
+                return size() > capacity;
+            }
+        };
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        remember(event.getPlayer());
+    }
+
+    public void loadOnlinePlayers() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            remember(player);
+        }
+    }
+
+    private void remember(Player player) {
+        String previous = put(player.getUniqueId(), player.getName());
+        if (!player.getName().equals(previous)) {
+            treasureRepo.savePlayerName(player.getUniqueId(), player.getName());
+        }
+    }
+
+    public synchronized String get(UUID player) {
+        return names.get(player);
+    }
+
+    public synchronized String put(UUID player, String name) {
+        return names.put(player, name);
+    }
+
+    public synchronized void putAll(Map<UUID, String> resolved) {
+        names.putAll(resolved);
+    }
+
+    public String resolve(UUID player) {
+        String name = get(player);
+        return name != null ? name : player.toString();
+    }
+
+    public CompletableFuture<Map<UUID, String>> resolveAll(Collection<UUID> players) {
+        Map<UUID, String> resolved = new HashMap<>();
+        List<UUID> missing = new ArrayList<>();
+        synchronized (this) {
+            for (UUID player : players) {
+                String name = names.get(player);
+                if (name != null) {
+                    resolved.put(player, name);
+                } else {
+                    missing.add(player);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(resolved);
+        }
+
+        return treasureRepo.getPlayerNames(missing).thenApply(loaded -> {
+            putAll(loaded);
+            resolved.putAll(loaded);
+            for (UUID player : missing) {
+                resolved.putIfAbsent(player, player.toString());
+            }
+            return resolved;
+        });
+    }
+}
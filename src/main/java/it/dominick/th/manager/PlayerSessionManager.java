@@ -0,0 +1,172 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.repository.TreasureStorage;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+public class PlayerSessionManager implements Listener {
+
+    private final TreasureHunt plugin;
+    private final TreasureStorage treasureRepo;
+    private final RedemptionStore redemptionStore;
+    private final ProgressTracker progressTracker;
+    private final Map<UUID, CompletableFuture<Set<Integer>>> sessions = new ConcurrentHashMap<>();
+
+    public PlayerSessionManager(TreasureHunt plugin, TreasureStorage treasureRepo, RedemptionStore redemptionStore, ProgressTracker progressTracker) {
+        this.plugin = plugin;
+        this.treasureRepo = treasureRepo;
+        this.redemptionStore = redemptionStore;
+        this.progressTracker = progressTracker;
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    public void loadOnlinePlayers() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            load(player.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        load(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.remove(event.getPlayer().getUniqueId());
+        progressTracker.remove(event.getPlayer().getUniqueId());
+    }
+
+    public CompletableFuture<Set<Integer>> getRedeemed(UUID player) {
+        CompletableFuture<Set<Integer>> session = sessions.get(player);
+        if (session != null) {
+            return session;
+        }
+
+        if (Bukkit.getPlayer(player) == null) {
+            List<Integer> stored = redemptionStore.getRedeemed(player);
+            if (stored != null) {
+                return CompletableFuture.completedFuture(Set.copyOf(stored));
+            }
+            return treasureRepo.getRedeemedForPlayer(player).thenApply(Set::copyOf);
+        }
+
+        return load(player);
+    }
+
+    public Set<Integer> getLoaded(UUID player) {
+        CompletableFuture<Set<Integer>> session = sessions.get(player);
+        if (session == null || !session.isDone() || session.isCompletedExceptionally()) {
+            return null;
+        }
+        return session.getNow(null);
+    }
+
+    public void markRedeemed(UUID player, int treasureKey) {
+        redemptionStore.markRedeemed(player, treasureKey);
+        CompletableFuture<Set<Integer>> session = sessions.get(player);
+        if (session != null) {
+            session.thenAccept(set -> {
+                if (set.add(treasureKey)) {
+                    progressTracker.redeemed(player, treasureKey, set);
+                }
+            });
+        }
+    }
+
+    public void markUnredeemed(UUID player, int treasureKey) {
+        redemptionStore.markUnredeemed(player, treasureKey);
+        CompletableFuture<Set<Integer>> session = sessions.get(player);
+        if (session != null) {
+            session.thenAccept(set -> {
+                if (set.remove(treasureKey)) {
+                    progressTracker.unredeemed(player, treasureKey, set);
+                }
+            });
+        }
+    }
+
+    public void forgetTreasure(int treasureKey) {
+        redemptionStore.forgetTreasure(treasureKey);
+        for (CompletableFuture<Set<Integer>> session : sessions.values()) {
+            session.thenAccept(set -> set.remove(treasureKey));
+        }
+    }
+
+    public void invalidate(UUID player) {
+        sessions.remove(player);
+        if (Bukkit.getPlayer(player) != null) {
+            load(player);
+        } else {
+            progressTracker.remove(player);
+            redemptionStore.invalidate(player);
+        }
+    }
+
+    public void refreshProgress(Supplier<Collection<TreasureRecord>> treasures) {
+        progressTracker.scheduleRefresh(treasures, () -> sessions.forEach((uuid, session) ->
+                session.thenAccept(set -> progressTracker.update(uuid, set))));
+    }
+
+    public void invalidateAll() {
+        sessions.clear();
+        redemptionStore.invalidateAll();
+        loadOnlinePlayers();
+    }
+
+    public void clear() {
+        sessions.clear();
+        progressTracker.clear();
+    }
+
+    private CompletableFuture<Set<Integer>> load(UUID player) {
+        CompletableFuture<Set<Integer>> existing = sessions.get(player);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<Set<Integer>> session = new CompletableFuture<>();
+        existing = sessions.putIfAbsent(player, session);
+        if (existing != null) {
+            return existing;
+        }
+
+        treasureRepo.getRedeemedForPlayer(player).whenComplete((list, ex) -> {
+            if (ex != null) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to preload redeemed treasures for " + player, ex);
+                sessions.remove(player, session);
+                session.completeExceptionally(ex);
+                return;
+            }
+
+            Set<Integer> set = ConcurrentHashMap.newKeySet(Math.max(16, list.size() * 2));
+            set.addAll(list);
+            if (sessions.get(player) == session) {
+                redemptionStore.put(player, list);
+                progressTracker.load(player, set);
+                if (!sessions.containsKey(player)) {
+                    progressTracker.remove(player);
+                }
+            }
+            session.complete(set);
+        });
+        return session;
+    }
+}
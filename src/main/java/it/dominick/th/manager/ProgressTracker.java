@@ -0,0 +1,173 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.model.PlayerProgress;
+import it.dominick.th.model.TreasureRecord;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+public class ProgressTracker {
+
+    private static final long REFRESH_DELAY_MILLIS = 100L;
+
+    private final Map<UUID, Entry> progress = new ConcurrentHashMap<>();
+    private final PlayerProgress unloaded = new PlayerProgress();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+    private final Executor refreshExecutor = CompletableFuture.delayedExecutor(REFRESH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    private volatile Catalog catalog = new Catalog(new TreasureRecord[0]);
+
+    public PlayerProgress get(UUID player) {
+        Entry current = progress.get(player);
+        return current != null ? current.progress : unloaded;
+    }
+
+    public String getPlaceholder(UUID player, String name) {
+        return get(player).getPlaceholder(name);
+    }
+
+    void load(UUID player, Set<Integer> redeemed) {
+        progress.compute(player, (uuid, entry) -> {
+            Entry loaded = entry != null ? entry : new Entry();
+            loaded.recount(catalog, redeemed);
+            return loaded;
+        });
+    }
+
+    void update(UUID player, Set<Integer> redeemed) {
+        progress.computeIfPresent(player, (uuid, entry) -> {
+            entry.recount(catalog, redeemed);
+            return entry;
+        });
+    }
+
+    void redeemed(UUID player, int treasureKey, Set<Integer> redeemed) {
+        progress.computeIfPresent(player, (uuid, entry) -> {
+            entry.redeemed(catalog, treasureKey, redeemed);
+            return entry;
+        });
+    }
+
+    void unredeemed(UUID player, int treasureKey, Set<Integer> redeemed) {
+        progress.computeIfPresent(player, (uuid, entry) -> {
+            entry.unredeemed(catalog, treasureKey, redeemed);
+            return entry;
+        });
+    }
+
+    void remove(UUID player) {
+        progress.remove(player);
+    }
+
+    void clear() {
+        progress.clear();
+    }
+
+    void scheduleRefresh(Supplier<Collection<TreasureRecord>> treasures, Runnable reload) {
+        if (!refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        refreshExecutor.execute(() -> {
+            refreshScheduled.set(false);
+            TreasureRecord[] records = treasures.get().toArray(new TreasureRecord[0]);
+            Arrays.sort(records, Comparator.comparingInt(TreasureRecord::getKey));
+            catalog = new Catalog(records);
+            unloaded.update(0, records.length, records.length > 0 ? records[0].getId() : "");
+            reload.run();
+        });
+    }
+
+    private static final class Catalog {
+        private final TreasureRecord[] records;
+        private final Map<Integer, Integer> positions;
+
+        private Catalog(TreasureRecord[] records) {
+            this.records = records;
+            this.positions = new HashMap<>(Math.max(16, records.length * 2));
+            for (int i = 0; i < records.length; i++) {
+                positions.put(records[i].getKey(), i);
+            }
+        }
+
+        private int nextUnredeemed(int from, Set<Integer> redeemed) {
+            int i = from;
+            while (i < records.length && redeemed.contains(records[i].getKey())) {
+                i++;
+            }
+            return i;
+        }
+
+        private String idAt(int index) {
+            return index < records.length ? records[index].getId() : "";
+        }
+    }
+
+    private static final class Entry {
+        private final PlayerProgress progress = new PlayerProgress();
+        private Catalog catalog;
+        private int found;
+        private int next;
+
+        private void recount(Catalog current, Set<Integer> redeemed) {
+            int count = 0;
+            for (TreasureRecord r : current.records) {
+                if (redeemed.contains(r.getKey())) {
+                    count++;
+                }
+            }
+            catalog = current;
+            found = count;
+            next = current.nextUnredeemed(0, redeemed);
+            publish();
+        }
+
+        private void redeemed(Catalog current, int treasureKey, Set<Integer> redeemed) {
+            if (catalog != current) {
+                recount(current, redeemed);
+                return;
+            }
+
+            Integer position = current.positions.get(treasureKey);
+            if (position == null) {
+                return;
+            }
+            found++;
+            if (position == next) {
+                next = current.nextUnredeemed(position + 1, redeemed);
+            }
+            publish();
+        }
+
+        private void unredeemed(Catalog current, int treasureKey, Set<Integer> redeemed) {
+            if (catalog != current) {
+                recount(current, redeemed);
+                return;
+            }
+
+            Integer position = current.positions.get(treasureKey);
+            if (position == null) {
+                return;
+            }
+            found = Math.max(0, found - 1);
+            if (position < next) {
+                next = position;
+            }
+            publish();
+        }
+
+        private void publish() {
+            progress.update(found, catalog.records.length, catalog.idAt(next));
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.TreasureRecord;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Particle;
+import org.bukkit.Sound;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+public class ProximityHints {
+
+    private final TreasureManager treasureManager;
+    @Getter
+    private final boolean enabled;
+    private final int intervalTicks;
+    private final int radius;
+    private final boolean sound;
+    private final long tickBudgetNanos;
+    private final List<Player> cycle = new ArrayList<>();
+    private final BukkitTask task;
+    private int tick;
+    private int cursor;
+
+    private long cycleNanos;
+    private long cycleMaxNanos;
+    private int cycleHints;
+    @Getter
+    private volatile long lastCycleAvgNanos;
+    @Getter
+    private volatile long lastCycleMaxNanos;
+    @Getter
+    private volatile int lastCycleHints;
+    @Getter
+    private volatile int lastCycleSkipped;
+    @Getter
+    private volatile long totalSkipped;
+    @Getter
+    private volatile long exhaustedTicks;
+
+    public ProximityHints(TreasureHunt plugin, TreasureManager treasureManager) {
+        this.treasureManager = treasureManager;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = config.getBooleanOrDefault(ConfigFile.CONFIG, "hints.enabled", false);
+        this.intervalTicks = Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "hints.intervalTicks", 20));
+        this.radius = Math.min(128, Math.max(4, config.getIntOrDefault(ConfigFile.CONFIG, "hints.radius", 32)));
+        this.sound = config.getBooleanOrDefault(ConfigFile.CONFIG, "hints.sound", true);
+        long budgetMicros = config.getLongOrDefault(ConfigFile.CONFIG, "hints.tickBudgetMicros", 500L);
+        this.tickBudgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(50L, budgetMicros));
+        this.task = enabled ? Bukkit.getScheduler().runTaskTimer(plugin, this::run, 1L, 1L) : null;
+    }
+
+    private void run() {
+        if (tick == 0) {
+            finishCycle();
+        }
+
+        int target = (int) ((long) cycle.size() * (tick + 1) / intervalTicks);
+        long start = System.nanoTime();
+        long deadline = start + tickBudgetNanos;
+        while (cursor < target) {
+            Player player = cycle.get(cursor++);
+            if (player.isOnline() && hint(player)) {
+                cycleHints++;
+            }
+            if (System.nanoTime() >= deadline) {
+                if (cursor < target) {
+                    exhaustedTicks++;
+                }
+                break;
+            }
+        }
+
+        long spent = System.nanoTime() - start;
+        cycleNanos += spent;
+        cycleMaxNanos = Math.max(cycleMaxNanos, spent);
+        tick = (tick + 1) % intervalTicks;
+    }
+
+    private void finishCycle() {
+        int skipped = cycle.size() - cursor;
+        lastCycleAvgNanos = cycleNanos / intervalTicks;
+        lastCycleMaxNanos = cycleMaxNanos;
+        lastCycleHints = cycleHints;
+        lastCycleSkipped = skipped;
+        totalSkipped += skipped;
+
+        cycleNanos = 0L;
+        cycleMaxNanos = 0L;
+        cycleHints = 0;
+        cycle.clear();
+        cycle.addAll(Bukkit.getOnlinePlayers());
+        cursor = 0;
+    }
+
+    private boolean hint(Player player) {
+        Set<Integer> redeemed = treasureManager.getSessionManager().getLoaded(player.getUniqueId());
+        if (redeemed == null) {
+            return false;
+        }
+
+        Location loc = player.getLocation();
+        if (loc.getWorld() == null) {
+            return false;
+        }
+
+        double x = loc.getX();
+        double y = loc.getY() + 1.0;
+        double z = loc.getZ();
+        TreasureRecord nearest = treasureManager.findNearest(loc.getWorld().getName(), x, y, z, radius, redeemed);
+        if (nearest == null) {
+            return false;
+        }
+
+        double dx = nearest.getX() + 0.5 - x;
+        double dy = nearest.getY() + 0.5 - y;
+        double dz = nearest.getZ() + 0.5 - z;
+        double warmth = 1.0 - Math.sqrt(dx * dx + dy * dy + dz * dz) / radius;
+        Particle particle = warmth > 0.66 ? Particle.FLAME : warmth > 0.33 ? Particle.END_ROD : Particle.SNOWFLAKE;
+
+        player.spawnParticle(particle, x, y, z, 1 + (int) (warmth * 6), 0.3, 0.3, 0.3, 0.0);
+        if (sound) {
+            player.playSound(loc, Sound.BLOCK_NOTE_BLOCK_PLING, 0.4f, (float) (0.5 + warmth * 1.5));
+        }
+        return true;
+    }
+
+    public void close() {
+        if (task != null) {
+            task.cancel();
+        }
+        cycle.clear();
+    }
+}
@@ -0,0 +1,323 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.PageCursor;
+import it.dominick.th.model.RedemptionRecord;
+import it.dominick.th.repository.TreasureStorage;
+import it.dominick.th.util.MappedRedemptionTable;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.logging.Level;
+
+public class RedemptionStore {
+
+    public static final int UNKNOWN = MappedRedemptionTable.UNKNOWN;
+    public static final int ABSENT = MappedRedemptionTable.ABSENT;
+    public static final int PRESENT = MappedRedemptionTable.PRESENT;
+
+    private final TreasureHunt plugin;
+    private final TreasureStorage treasureRepo;
+    @Getter
+    private final boolean enabled;
+    private final Path path;
+    private final int maxTreasures;
+    private final int initialCapacity;
+    private final boolean autoRebuild;
+    private final int chunkSize;
+    private final long pauseMillis;
+
+    private final AtomicBoolean rebuildRunning = new AtomicBoolean();
+    private final AtomicBoolean overflowReported = new AtomicBoolean();
+    private final Set<Removal> removedDuringRebuild = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> skippedPlayers = ConcurrentHashMap.newKeySet();
+    private final Set<Integer> skippedKeys = ConcurrentHashMap.newKeySet();
+    private volatile MappedRedemptionTable table;
+    private volatile MappedRedemptionTable building;
+
+    public RedemptionStore(TreasureHunt plugin, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureRepo = treasureRepo;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = config.getBooleanOrDefault(ConfigFile.CONFIG, "redemptionStore.enabled", false);
+        this.path = plugin.getDataFolder().toPath().resolve(config.getStringOrDefault(ConfigFile.CONFIG, "redemptionStore.file", "redemptions.store"));
+        this.maxTreasures = Math.max(64, config.getIntOrDefault(ConfigFile.CONFIG, "redemptionStore.maxTreasures", 1024));
+        this.initialCapacity = Math.max(1024, config.getIntOrDefault(ConfigFile.CONFIG, "redemptionStore.initialCapacity", 65536));
+        this.autoRebuild = config.getBooleanOrDefault(ConfigFile.CONFIG, "redemptionStore.autoRebuild", true);
+        this.chunkSize = Math.min(10000, Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "redemptionStore.rebuildChunkSize", 5000)));
+        this.pauseMillis = Math.max(0L, config.getLongOrDefault(ConfigFile.CONFIG, "redemptionStore.rebuildPauseMillis", 20L));
+    }
+
+    public void open() {
+        if (!enabled || table != null) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(path.getParent());
+            MappedRedemptionTable opened = MappedRedemptionTable.open(path, maxTreasures, initialCapacity);
+            if (opened.isComplete() && treasureRepo.isChangeLogEnabled()) {
+                opened.clear();
+            }
+            table = opened;
+        } catch (IOException | RuntimeException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open redemption store " + path.getFileName() + ", falling back to the database", ex);
+            return;
+        }
+
+        plugin.getLogger().info("Opened redemption store with " + table.getSize() + " players (" + (table.isComplete() ? "complete" : "partial") + ")");
+        reportOverflow(table);
+        int tracked = table.getBits();
+        treasureRepo.countTreasures().thenAccept(count -> {
+            if (count > tracked) {
+                plugin.getLogger().warning("The catalog has " + count + " treasures but the redemption store tracks " + tracked
+                        + ", raise redemptionStore.maxTreasures; offline lookups fall back to the database once more than " + tracked + " have been claimed");
+            }
+        });
+        if (!table.isComplete() && autoRebuild) {
+            rebuild(count -> {}).exceptionally(ex -> null);
+        }
+    }
+
+    public int state(UUID player, int treasureKey) {
+        MappedRedemptionTable current = table;
+        if (current == null) {
+            return UNKNOWN;
+        }
+        return current.state(player.getMostSignificantBits(), player.getLeastSignificantBits(), treasureKey);
+    }
+
+    public List<Integer> getRedeemed(UUID player) {
+        MappedRedemptionTable current = table;
+        int[] keys = current != null ? current.keys(player.getMostSignificantBits(), player.getLeastSignificantBits()) : null;
+        if (keys == null) {
+            return null;
+        }
+
+        List<Integer> list = new ArrayList<>(keys.length);
+        for (int key : keys) {
+            list.add(key);
+        }
+        return list;
+    }
+
+    public void markRedeemed(UUID player, int treasureKey) {
+        if (building != null) {
+            removedDuringRebuild.remove(new Removal(player, treasureKey));
+        }
+        apply(t -> t.set(player.getMostSignificantBits(), player.getLeastSignificantBits(), treasureKey, true));
+    }
+
+    public void markUnredeemed(UUID player, int treasureKey) {
+        if (building != null) {
+            removedDuringRebuild.add(new Removal(player, treasureKey));
+        }
+        apply(t -> t.set(player.getMostSignificantBits(), player.getLeastSignificantBits(), treasureKey, false));
+    }
+
+    public void put(UUID player, List<Integer> treasureKeys) {
+        apply(t -> t.put(player.getMostSignificantBits(), player.getLeastSignificantBits(), treasureKeys));
+    }
+
+    public void invalidate(UUID player) {
+        if (table == null) {
+            return;
+        }
+
+        if (building != null) {
+            skippedPlayers.add(player);
+        }
+        treasureRepo.getRedeemedForPlayer(player).thenAccept(keys -> put(player, keys));
+    }
+
+    public void forgetTreasure(int treasureKey) {
+        if (building != null) {
+            skippedKeys.add(treasureKey);
+        }
+        apply(t -> t.clearKey(treasureKey));
+    }
+
+    public void invalidateAll() {
+        MappedRedemptionTable current = table;
+        if (current == null) {
+            return;
+        }
+
+        current.clear();
+        if (autoRebuild && !rebuildRunning.get()) {
+            rebuild(count -> {}).exceptionally(ex -> null);
+        }
+    }
+
+    public int getSize() {
+        MappedRedemptionTable current = table;
+        return current != null ? current.getSize() : 0;
+    }
+
+    public boolean isComplete() {
+        MappedRedemptionTable current = table;
+        return current != null && current.isComplete();
+    }
+
+    public boolean isRebuilding() {
+        return rebuildRunning.get();
+    }
+
+    public CompletableFuture<Long> rebuild(LongConsumer progress) {
+        if (table == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("The redemption store is disabled"));
+        }
+        if (treasureRepo.isLegacyMigrationPending()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Legacy redemptions are still being migrated"));
+        }
+        if (!rebuildRunning.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("A rebuild is already running"));
+        }
+
+        Path rebuildPath = path.resolveSibling(path.getFileName() + ".rebuild");
+        try {
+            building = MappedRedemptionTable.create(rebuildPath, maxTreasures, Math.max(initialCapacity, table.getSize() * 2));
+        } catch (IOException | RuntimeException ex) {
+            rebuildRunning.set(false);
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        long started = System.currentTimeMillis();
+        RebuildJob job = new RebuildJob(progress);
+        rebuildChunk(job, null);
+        return job.result.whenComplete((rows, ex) -> {
+            MappedRedemptionTable built = building;
+            try {
+                if (ex == null && table != null) {
+                    built.setComplete(true);
+                    built.moveTo(path);
+                    MappedRedemptionTable previous = table;
+                    table = built;
+                    previous.close();
+                    overflowReported.set(false);
+                    reportOverflow(built);
+                    plugin.getLogger().info("Rebuilt redemption store from " + rows + " redemptions (" + built.getSize() + " players) in "
+                            + (System.currentTimeMillis() - started) + "ms");
+                } else {
+                    built.close();
+                    Files.deleteIfExists(rebuildPath);
+                    plugin.getLogger().log(Level.WARNING, "Redemption store rebuild stopped after " + job.rows + " rows", ex);
+                }
+            } catch (IOException | RuntimeException closeEx) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to finish redemption store rebuild", closeEx);
+            } finally {
+                building = null;
+                removedDuringRebuild.clear();
+                skippedPlayers.clear();
+                skippedKeys.clear();
+                rebuildRunning.set(false);
+            }
+        });
+    }
+
+    private void rebuildChunk(RebuildJob job, PageCursor after) {
+        treasureRepo.getRedeemedChunk(after, chunkSize).whenComplete((chunk, ex) -> {
+            if (ex != null || chunk == null) {
+                job.result.completeExceptionally(ex != null ? ex : new IllegalStateException("Database error after " + job.rows + " rows"));
+                return;
+            }
+
+            MappedRedemptionTable target = building;
+            try {
+                for (RedemptionRecord r : chunk.getEntries()) {
+                    UUID player = r.getPlayer();
+                    int key = r.getTreasureKey();
+                    if (skippedKeys.contains(key) || skippedPlayers.contains(player)
+                            || (!removedDuringRebuild.isEmpty() && removedDuringRebuild.contains(new Removal(player, key)))) {
+                        continue;
+                    }
+                    target.set(player.getMostSignificantBits(), player.getLeastSignificantBits(), key, true);
+                }
+            } catch (RuntimeException applyEx) {
+                job.result.completeExceptionally(applyEx);
+                return;
+            }
+            job.rows += chunk.getEntries().size();
+
+            if (!chunk.isHasMore()) {
+                job.result.complete(job.rows);
+                return;
+            }
+
+            job.progress.accept(job.rows);
+            CompletableFuture.delayedExecutor(pauseMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> rebuildChunk(job, chunk.getNext()));
+        });
+    }
+
+    private void apply(Consumer<MappedRedemptionTable> operation) {
+        MappedRedemptionTable current = table;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            operation.accept(current);
+            MappedRedemptionTable next = building;
+            if (next != null) {
+                operation.accept(next);
+            }
+            reportOverflow(current);
+        } catch (RuntimeException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to update redemption store", ex);
+        }
+    }
+
+    private void reportOverflow(MappedRedemptionTable target) {
+        if (target.isOverflowed() && overflowReported.compareAndSet(false, true)) {
+            plugin.getLogger().warning("Redemption store is full at " + target.getBits() + " distinct treasures, offline lookups now use the database;"
+                    + " raise redemptionStore.maxTreasures and run /th store rebuild");
+        }
+    }
+
+    public void close() {
+        MappedRedemptionTable current = table;
+        MappedRedemptionTable next = building;
+        table = null;
+        if (current == null) {
+            return;
+        }
+
+        try {
+            current.close();
+            if (next != null) {
+                next.close();
+            }
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close redemption store", ex);
+        }
+    }
+
+    private record Removal(UUID player, int treasureKey) {
+    }
+
+    private static class RebuildJob {
+        final LongConsumer progress;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        long rows;
+
+        RebuildJob(LongConsumer progress) {
+            this.progress = progress;
+        }
+    }
+}
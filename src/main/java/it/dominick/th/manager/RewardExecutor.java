@@ -0,0 +1,191 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.model.RewardTemplate;
+import it.dominick.th.model.TreasureDefinition;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.repository.TreasureStorage;
+import it.dominick.th.util.ChatUtils;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+
+public class RewardExecutor implements Listener {
+
+    private static final long CLOSE_TIMEOUT_SECONDS = 5L;
+
+    private final TreasureHunt plugin;
+    private final TreasureStorage treasureRepo;
+    private final long tickBudgetNanos;
+    private final Queue<PendingReward> queue = new ConcurrentLinkedQueue<>();
+    private final Map<UUID, Queue<PendingReward>> deferred = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<Void>> storing = ConcurrentHashMap.newKeySet();
+    private final BukkitTask task;
+
+    public RewardExecutor(TreasureHunt plugin, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureRepo = treasureRepo;
+        long budgetMicros = plugin.getConfigManager().getLongOrDefault(ConfigFile.CONFIG, "rewards.tickBudgetMicros", 2000L);
+        this.tickBudgetNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(50L, budgetMicros));
+        this.task = Bukkit.getScheduler().runTaskTimer(plugin, this::drain, 1L, 1L);
+        Bukkit.getPluginManager().registerEvents(this, plugin);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        UUID playerId = event.getPlayer().getUniqueId();
+        String playerName = event.getPlayer().getName();
+        Queue<PendingReward> rewards = deferred.remove(playerId);
+        if (rewards != null) {
+            queue.addAll(rewards);
+        }
+
+        treasureRepo.takePendingRewards(playerId).thenAccept(stored -> {
+            if (stored == null) {
+                return;
+            }
+            for (TreasureDefinition d : stored) {
+                RewardTemplate reward = RewardTemplate.compile(d.getCommand(), d.getId(), d.getWorld(), d.getX(), d.getY(), d.getZ());
+                queue.add(new PendingReward(playerId, playerName, d, reward));
+            }
+        });
+    }
+
+    public void submit(Player player, TreasureRecord treasure) {
+        if (treasure.getReward().getAction() == RewardTemplate.Action.NONE) {
+            return;
+        }
+        TreasureDefinition definition = new TreasureDefinition(treasure.getId(), treasure.getWorld(),
+                treasure.getX(), treasure.getY(), treasure.getZ(), treasure.getCommand());
+        queue.add(new PendingReward(player.getUniqueId(), player.getName(), definition, treasure.getReward()));
+    }
+
+    public int getPending() {
+        return queue.size();
+    }
+
+    private void drain() {
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + tickBudgetNanos;
+        PendingReward reward;
+        while ((reward = queue.poll()) != null) {
+            execute(reward);
+            if (System.nanoTime() >= deadline) {
+                return;
+            }
+        }
+    }
+
+    private void execute(PendingReward pending) {
+        RewardTemplate template = pending.reward;
+        try {
+            switch (template.getAction()) {
+                case CONSOLE -> Bukkit.dispatchCommand(Bukkit.getConsoleSender(), template.render(pending.playerName, pending.playerId));
+                case MESSAGE -> {
+                    Player player = Bukkit.getPlayer(pending.playerId);
+                    if (player != null) {
+                        ChatUtils.send(player, template.render(pending.playerName, pending.playerId));
+                    } else {
+                        defer(pending);
+                    }
+                }
+                case XP -> {
+                    Player player = Bukkit.getPlayer(pending.playerId);
+                    if (player != null) {
+                        player.giveExp(template.getAmount());
+                    } else {
+                        defer(pending);
+                    }
+                }
+                case ITEM -> {
+                    Player player = Bukkit.getPlayer(pending.playerId);
+                    if (player == null) {
+                        defer(pending);
+                        return;
+                    }
+                    player.getInventory().addItem(new ItemStack(template.getMaterial(), template.getAmount()))
+                            .values()
+                            .forEach(left -> player.getWorld().dropItemNaturally(player.getLocation(), left));
+                }
+                case INVALID -> plugin.getLogger().warning("Invalid reward for treasure " + pending.treasure.getId() + ": " + template.getSource());
+                case NONE -> {
+                }
+            }
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to execute reward for treasure " + pending.treasure.getId(), ex);
+        }
+    }
+
+    private void defer(PendingReward pending) {
+        CompletableFuture<Void> store = treasureRepo.addPendingReward(pending.playerId, pending.treasure).handle((stored, ex) -> {
+            if (ex != null || !Boolean.TRUE.equals(stored)) {
+                plugin.getLogger().warning("Could not store the reward for treasure " + pending.treasure.getId() + ", keeping it in memory until "
+                        + pending.playerName + " joins this server again");
+                deferred.computeIfAbsent(pending.playerId, uuid -> new ConcurrentLinkedQueue<>()).add(pending);
+            }
+            return null;
+        });
+        storing.add(store);
+        store.whenComplete((v, ex) -> storing.remove(store));
+    }
+
+    public void close() {
+        task.cancel();
+
+        PendingReward reward;
+        while ((reward = queue.poll()) != null) {
+            execute(reward);
+        }
+
+        List<CompletableFuture<Void>> inFlight = List.copyOf(storing);
+        if (!inFlight.isEmpty()) {
+            try {
+                CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get(CLOSE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException | TimeoutException ex) {
+                plugin.getLogger().log(Level.WARNING, "Gave up waiting for " + storing.size() + " pending rewards to be stored", ex);
+            }
+        }
+
+        deferred.values().forEach(rewards -> rewards.forEach(pending -> plugin.getLogger().warning("Undelivered reward for treasure "
+                + pending.treasure.getId() + " (" + pending.reward.getSource() + "): " + pending.playerName + " (" + pending.playerId + ") is offline")));
+        deferred.clear();
+    }
+
+    private static class PendingReward {
+        final UUID playerId;
+        final String playerName;
+        final TreasureDefinition treasure;
+        final RewardTemplate reward;
+
+        PendingReward(UUID playerId, String playerName, TreasureDefinition treasure, RewardTemplate reward) {
+            this.playerId = playerId;
+            this.playerName = playerName;
+            this.treasure = treasure;
+            this.reward = reward;
+        }
+    }
+}
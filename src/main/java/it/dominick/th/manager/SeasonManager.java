@@ -0,0 +1,115 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.model.PageCursor;
+import it.dominick.th.model.RedemptionRecord;
+import it.dominick.th.model.Season;
+import it.dominick.th.repository.TreasureStorage;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongConsumer;
+
+public class SeasonManager {
+
+    private final TreasureHunt plugin;
+    private final TreasureManager treasureManager;
+    private final TreasureStorage treasureRepo;
+    private final int chunkSize;
+    private final long pauseMillis;
+    private final AtomicBoolean archiveRunning = new AtomicBoolean();
+
+    public SeasonManager(TreasureHunt plugin, TreasureManager treasureManager, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureManager = treasureManager;
+        this.treasureRepo = treasureRepo;
+        this.chunkSize = Math.min(5000, Math.max(1, plugin.getConfigManager().getIntOrDefault(ConfigFile.CONFIG, "seasons.archiveChunkSize", 1000)));
+        this.pauseMillis = Math.max(0L, plugin.getConfigManager().getLongOrDefault(ConfigFile.CONFIG, "seasons.archivePauseMillis", 50L));
+    }
+
+    public CompletableFuture<List<Season>> getSeasons() {
+        return treasureRepo.getSeasons();
+    }
+
+    public CompletableFuture<Season> startSeason(String name) {
+        return treasureRepo.startSeason(name);
+    }
+
+    public CompletableFuture<Boolean> closeSeason() {
+        return treasureRepo.closeSeason();
+    }
+
+    public CompletableFuture<Long> archiveSeason(Season season, LongConsumer progress) {
+        if (season.isOpen()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Season " + season.getName() + " is still open"));
+        }
+
+        return archive(season.getStartedAt(), season.getClosedAt(), season.getId(), progress)
+                .thenCompose(moved -> treasureRepo.markSeasonArchived(season.getId()).thenApply(v -> moved));
+    }
+
+    public CompletableFuture<Long> archiveBefore(long cutoffMillis, LongConsumer progress) {
+        return archive(0L, cutoffMillis, 0, progress);
+    }
+
+    private CompletableFuture<Long> archive(long fromMillis, long toMillis, int seasonId, LongConsumer progress) {
+        if (!archiveRunning.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Another archive is already running"));
+        }
+
+        ArchiveJob job = new ArchiveJob(fromMillis, toMillis, seasonId, progress);
+        archiveChunk(job, null);
+        return job.result.whenComplete((moved, ex) -> {
+            if (job.moved > 0) {
+                treasureRepo.appendRedemptionsReset();
+            }
+            archiveRunning.set(false);
+            treasureManager.invalidatePages();
+            if (ex == null) {
+                plugin.getLogger().info("Archived " + moved + " redemptions" + (seasonId > 0 ? " of season #" + seasonId : ""));
+            }
+        });
+    }
+
+    private void archiveChunk(ArchiveJob job, PageCursor after) {
+        treasureRepo.archiveRedeemedChunk(job.fromMillis, job.toMillis, job.seasonId, after, chunkSize).whenComplete((chunk, ex) -> {
+            if (ex != null || chunk == null) {
+                job.result.completeExceptionally(ex != null ? ex : new IllegalStateException("Database error after " + job.moved + " rows"));
+                return;
+            }
+
+            for (RedemptionRecord r : chunk.getEntries()) {
+                treasureManager.getSessionManager().markUnredeemed(r.getPlayer(), r.getTreasureKey());
+            }
+            job.moved += chunk.getEntries().size();
+
+            if (!chunk.isHasMore()) {
+                job.result.complete(job.moved);
+                return;
+            }
+
+            job.progress.accept(job.moved);
+            CompletableFuture.delayedExecutor(pauseMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> archiveChunk(job, chunk.getNext()));
+        });
+    }
+
+    private static class ArchiveJob {
+        final long fromMillis;
+        final long toMillis;
+        final int seasonId;
+        final LongConsumer progress;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        long moved;
+
+        ArchiveJob(long fromMillis, long toMillis, int seasonId, LongConsumer progress) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.seasonId = seasonId;
+            this.progress = progress;
+        }
+    }
+}
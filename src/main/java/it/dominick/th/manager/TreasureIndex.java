@@ -0,0 +1,300 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.util.KdTree;
+import it.dominick.th.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+public class TreasureIndex {
+
+    private static final int CELL_SHIFT = 4;
+    private static final TreasureRecord[] EMPTY_CELL = new TreasureRecord[0];
+    private static final int MIN_TREE_PATCHES = 64;
+
+    private volatile Map<String, LongObjectHashMap<TreasureRecord>> worlds = new HashMap<>();
+    private volatile Map<String, LongObjectHashMap<TreasureRecord[]>> grids = new HashMap<>();
+    private volatile Map<String, WorldTree> trees = new HashMap<>();
+
+    public static long blockKey(int x, int y, int z) {
+        return ((long) x & 0x7FFFFFF) | (((long) z & 0x7FFFFFF) << 27) | ((long) y << 54);
+    }
+
+    public static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    public TreasureRecord[] getCell(String world, int cellX, int cellZ) {
+        LongObjectHashMap<TreasureRecord[]> grid = grids.get(world);
+        if (grid == null) {
+            return null;
+        }
+
+        synchronized (grid) {
+            return grid.get(cellKey(cellX, cellZ));
+        }
+    }
+
+    public TreasureRecord nearest(String world, double x, double y, double z, int radius, Set<Integer> exclude) {
+        LongObjectHashMap<TreasureRecord[]> grid = grids.get(world);
+        if (grid == null) {
+            return null;
+        }
+
+        int minX = ((int) Math.floor(x) - radius) >> CELL_SHIFT;
+        int maxX = ((int) Math.floor(x) + radius) >> CELL_SHIFT;
+        int minZ = ((int) Math.floor(z) - radius) >> CELL_SHIFT;
+        int maxZ = ((int) Math.floor(z) + radius) >> CELL_SHIFT;
+        double best = (double) radius * radius;
+        TreasureRecord nearest = null;
+
+        synchronized (grid) {
+            for (int cx = minX; cx <= maxX; cx++) {
+                for (int cz = minZ; cz <= maxZ; cz++) {
+                    TreasureRecord[] cell = grid.get(cellKey(cx, cz));
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (TreasureRecord r : cell) {
+                        double dx = r.getX() + 0.5 - x;
+                        double dy = r.getY() + 0.5 - y;
+                        double dz = r.getZ() + 0.5 - z;
+                        double distance = dx * dx + dy * dy + dz * dz;
+                        if (distance <= best && (exclude == null || !exclude.contains(r.getKey()))) {
+                            best = distance;
+                            nearest = r;
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    public List<TreasureRecord> nearestNeighbors(String world, double x, double y, double z, int k, double maxDistance, Set<Integer> exclude) {
+        WorldTree tree = trees.get(world);
+        if (tree == null) {
+            return List.of();
+        }
+
+        KdTree.Neighbors<TreasureRecord> neighbors = new KdTree.Neighbors<>(k, maxDistance);
+        synchronized (tree) {
+            KdTree<TreasureRecord> current = tree.current();
+            current.nearest(x - 0.5, y - 0.5, z - 0.5, neighbors, tree.skip(exclude));
+            for (TreasureRecord r : tree.added) {
+                if (exclude == null || !exclude.contains(r.getKey())) {
+                    neighbors.offer(r, distanceSquared(r, x, y, z));
+                }
+            }
+        }
+        return neighbors.toSortedList();
+    }
+
+    public List<TreasureRecord> within(String world, double x, double y, double z, double radius, Set<Integer> exclude) {
+        WorldTree tree = trees.get(world);
+        if (tree == null) {
+            return List.of();
+        }
+
+        List<TreasureRecord> found = new ArrayList<>();
+        synchronized (tree) {
+            KdTree<TreasureRecord> current = tree.current();
+            current.within(x - 0.5, y - 0.5, z - 0.5, radius, tree.skip(exclude), found::add);
+            for (TreasureRecord r : tree.added) {
+                if ((exclude == null || !exclude.contains(r.getKey())) && distanceSquared(r, x, y, z) <= radius * radius) {
+                    found.add(r);
+                }
+            }
+        }
+        return found;
+    }
+
+    private static double distanceSquared(TreasureRecord r, double x, double y, double z) {
+        double dx = r.getX() + 0.5 - x;
+        double dy = r.getY() + 0.5 - y;
+        double dz = r.getZ() + 0.5 - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    public TreasureRecord get(String world, int x, int y, int z) {
+        LongObjectHashMap<TreasureRecord> index = worlds.get(world);
+        if (index == null) {
+            return null;
+        }
+
+        synchronized (index) {
+            return index.get(blockKey(x, y, z));
+        }
+    }
+
+    public synchronized void put(TreasureRecord previous, TreasureRecord record) {
+        if (previous != null) {
+            removeFromWorld(previous);
+        }
+
+        LongObjectHashMap<TreasureRecord> index = worlds.get(record.getWorld());
+        if (index == null) {
+            Map<String, LongObjectHashMap<TreasureRecord>> copy = new HashMap<>(worlds);
+            index = new LongObjectHashMap<>();
+            copy.put(record.getWorld(), index);
+            worlds = copy;
+        }
+
+        synchronized (index) {
+            index.put(blockKey(record.getX(), record.getY(), record.getZ()), record);
+        }
+        addToGrid(record);
+        addToTree(record);
+    }
+
+    public synchronized void remove(TreasureRecord record) {
+        if (record != null) {
+            removeFromWorld(record);
+        }
+    }
+
+    public synchronized void rebuild(Collection<TreasureRecord> records) {
+        Map<String, LongObjectHashMap<TreasureRecord>> rebuilt = new HashMap<>();
+        for (TreasureRecord r : records) {
+            rebuilt.computeIfAbsent(r.getWorld(), w -> new LongObjectHashMap<>())
+                    .put(blockKey(r.getX(), r.getY(), r.getZ()), r);
+        }
+        worlds = rebuilt;
+        grids = new HashMap<>();
+        trees = new HashMap<>();
+        for (TreasureRecord r : records) {
+            addToGrid(r);
+            addToTree(r);
+        }
+    }
+
+    private void addToTree(TreasureRecord record) {
+        WorldTree tree = trees.get(record.getWorld());
+        if (tree == null) {
+            Map<String, WorldTree> copy = new HashMap<>(trees);
+            tree = new WorldTree();
+            copy.put(record.getWorld(), tree);
+            trees = copy;
+        }
+
+        synchronized (tree) {
+            tree.added.add(record);
+        }
+    }
+
+    private void removeFromTree(TreasureRecord record) {
+        WorldTree tree = trees.get(record.getWorld());
+        if (tree == null) {
+            return;
+        }
+
+        synchronized (tree) {
+            if (!tree.added.remove(record)) {
+                tree.removed.add(record);
+            }
+        }
+    }
+
+    private void addToGrid(TreasureRecord record) {
+        LongObjectHashMap<TreasureRecord[]> grid = grids.get(record.getWorld());
+        if (grid == null) {
+            Map<String, LongObjectHashMap<TreasureRecord[]>> copy = new HashMap<>(grids);
+            grid = new LongObjectHashMap<>();
+            copy.put(record.getWorld(), grid);
+            grids = copy;
+        }
+
+        long key = cellKey(record.getX() >> CELL_SHIFT, record.getZ() >> CELL_SHIFT);
+        synchronized (grid) {
+            TreasureRecord[] cell = grid.get(key);
+            if (cell == null) {
+                cell = EMPTY_CELL;
+            }
+            TreasureRecord[] grown = Arrays.copyOf(cell, cell.length + 1);
+            grown[cell.length] = record;
+            grid.put(key, grown);
+        }
+    }
+
+    private void removeFromGrid(TreasureRecord record) {
+        LongObjectHashMap<TreasureRecord[]> grid = grids.get(record.getWorld());
+        if (grid == null) {
+            return;
+        }
+
+        long key = cellKey(record.getX() >> CELL_SHIFT, record.getZ() >> CELL_SHIFT);
+        synchronized (grid) {
+            TreasureRecord[] cell = grid.get(key);
+            if (cell == null) {
+                return;
+            }
+            for (int i = 0; i < cell.length; i++) {
+                if (cell[i] == record) {
+                    if (cell.length == 1) {
+                        grid.remove(key);
+                    } else {
+                        TreasureRecord[] shrunk = new TreasureRecord[cell.length - 1];
+                        System.arraycopy(cell, 0, shrunk, 0, i);
+                        System.arraycopy(cell, i + 1, shrunk, i, cell.length - i - 1);
+                        grid.put(key, shrunk);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    private void removeFromWorld(TreasureRecord record) {
+        removeFromGrid(record);
+        removeFromTree(record);
+        LongObjectHashMap<TreasureRecord> index = worlds.get(record.getWorld());
+        if (index == null) {
+            return;
+        }
+
+        long key = blockKey(record.getX(), record.getY(), record.getZ());
+        synchronized (index) {
+            if (index.get(key) == record) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static class WorldTree {
+        final List<TreasureRecord> added = new ArrayList<>();
+        final Set<TreasureRecord> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        KdTree<TreasureRecord> tree = new KdTree<>(List.of(), TreasureRecord::getX, TreasureRecord::getY, TreasureRecord::getZ);
+
+        KdTree<TreasureRecord> current() {
+            if (added.size() + removed.size() > Math.max(MIN_TREE_PATCHES, tree.size() >> 4)) {
+                List<TreasureRecord> records = new ArrayList<>(tree.size() + added.size());
+                tree.forEach(r -> {
+                    if (!removed.contains(r)) {
+                        records.add(r);
+                    }
+                });
+                records.addAll(added);
+                tree = new KdTree<>(records, TreasureRecord::getX, TreasureRecord::getY, TreasureRecord::getZ);
+                added.clear();
+                removed.clear();
+            }
+            return tree;
+        }
+
+        Predicate<TreasureRecord> skip(Set<Integer> exclude) {
+            if (removed.isEmpty()) {
+                return exclude == null ? null : r -> exclude.contains(r.getKey());
+            }
+            return exclude == null ? removed::contains : r -> removed.contains(r) || exclude.contains(r.getKey());
+        }
+    }
+}
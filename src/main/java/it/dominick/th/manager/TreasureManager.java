@@ -1,111 +1,581 @@
 package it.dominick.th.manager;
 
 import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.model.ClaimResult;
+import it.dominick.th.model.PageCursor;
+import it.dominick.th.model.PlayerProgress;
+import it.dominick.th.model.RedemptionPage;
+import it.dominick.th.model.RedemptionRecord;
+import it.dominick.th.model.ResetScope;
 import it.dominick.th.model.TreasureRecord;
 import it.dominick.th.repository.DatabaseRepository;
+import it.dominick.th.repository.RedemptionJournal;
+import it.dominick.th.repository.RedemptionWriteQueue;
 import it.dominick.th.repository.TreasureRepository;
+import it.dominick.th.repository.TreasureStorage;
 import lombok.Getter;
-import org.bukkit.Bukkit;
-import org.bukkit.OfflinePlayer;
 
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.LongConsumer;
 import java.util.logging.Level;
 
 public class TreasureManager {
 
+    private static final long SYNC_OVERLAP_MILLIS = 5000L;
+    private static final long INIT_RETRY_SECONDS = 30L;
+
     private final TreasureHunt plugin;
     private final DatabaseRepository dbRepo;
-    private final TreasureRepository treasureRepo;
+    private final TreasureStorage treasureRepo;
+    @Getter
+    private final RedemptionWriteQueue writeQueue;
+    @Getter
+    private final RedemptionJournal journal;
     @Getter
     private final TreasurePlacementManager placementManager;
+    @Getter
+    private final PlayerSessionManager sessionManager;
+    @Getter
+    private final RewardExecutor rewardExecutor;
+    @Getter
+    private final ChangeLogPoller changeLogPoller;
+    @Getter
+    private final TreasureTransfer transfer;
+    @Getter
+    private final SeasonManager seasonManager;
+    private final TreasureSnapshot snapshot;
+    @Getter
+    private final RedemptionStore redemptionStore;
+    @Getter
+    private final Leaderboard leaderboard;
+    @Getter
+    private final ProgressTracker progressTracker;
+    @Getter
+    private final PlayerNameCache nameCache;
+    @Getter
+    private final ProximityHints proximityHints;
+    @Getter
+    private final TreasureMarkers markers;
 
     private final Map<String, TreasureRecord> treasureCache = new ConcurrentHashMap<>();
+    private final Map<Integer, TreasureRecord> treasureKeys = new ConcurrentHashMap<>();
+    private final TreasureIndex treasureIndex = new TreasureIndex();
+    private final Map<ClaimKey, CompletableFuture<ClaimResult>> inflightClaims = new ConcurrentHashMap<>();
+    private final PageCursorCache pageCursors = new PageCursorCache();
+    @Getter
+    private final int pageSize;
+    @Getter
+    private volatile long syncWatermark;
+    private final int resetChunkSize;
+    private final long resetPauseMillis;
+    private final AtomicBoolean resetRunning = new AtomicBoolean();
+    private final AtomicBoolean deferredResetAll = new AtomicBoolean();
+    private volatile boolean resettingAll;
+    private final AtomicBoolean databaseInitRunning = new AtomicBoolean();
+    private volatile boolean databaseReady;
+    private volatile boolean closed;
 
     public TreasureManager(TreasureHunt plugin, DatabaseRepository dbRepo) {
         this.plugin = plugin;
         this.dbRepo = dbRepo;
         this.treasureRepo = new TreasureRepository(dbRepo);
-        this.placementManager = new TreasurePlacementManager(plugin, treasureRepo);
+        this.leaderboard = new Leaderboard(plugin, treasureRepo);
+        this.journal = new RedemptionJournal(plugin, treasureRepo);
+        this.writeQueue = new RedemptionWriteQueue(treasureRepo, journal);
+        this.pageSize = Math.max(1, plugin.getConfigManager().getIntOrDefault(ConfigFile.CONFIG, "listing.pageSize", 10));
+        this.resetChunkSize = Math.min(5000, Math.max(1, plugin.getConfigManager().getIntOrDefault(ConfigFile.CONFIG, "reset.chunkSize", 1000)));
+        this.resetPauseMillis = Math.max(0L, plugin.getConfigManager().getLongOrDefault(ConfigFile.CONFIG, "reset.pauseMillis", 50L));
+        this.placementManager = new TreasurePlacementManager(plugin, this, treasureRepo);
+        this.redemptionStore = new RedemptionStore(plugin, treasureRepo);
+        this.progressTracker = new ProgressTracker();
+        this.nameCache = new PlayerNameCache(plugin, treasureRepo);
+        this.sessionManager = new PlayerSessionManager(plugin, treasureRepo, redemptionStore, progressTracker);
+        this.rewardExecutor = new RewardExecutor(plugin, treasureRepo);
+        this.changeLogPoller = new ChangeLogPoller(plugin, this, treasureRepo);
+        this.transfer = new TreasureTransfer(plugin, this, treasureRepo);
+        this.seasonManager = new SeasonManager(plugin, this, treasureRepo);
+        this.snapshot = new TreasureSnapshot(plugin, this);
+        this.proximityHints = new ProximityHints(plugin, this);
+        this.markers = new TreasureMarkers(plugin, this);
         new TreasureClaimManager(plugin, this, this.placementManager);
     }
 
     public CompletableFuture<Void> init() {
+        TreasureSnapshot.Contents contents = snapshot.load();
+        if (contents != null) {
+            replaceCache(contents.records(), contents.watermark());
+            plugin.getLogger().info("Loaded " + contents.records().size() + " treasures from snapshot, reconciling with the database in the background.");
+        }
+
+        journal.open();
+        dbRepo.getCircuitBreaker().onRecovery(this::onDatabaseRecovery);
+        return initDatabase();
+    }
+
+    private void onDatabaseRecovery() {
+        if (databaseReady) {
+            journal.replay();
+        } else {
+            initDatabase();
+        }
+    }
+
+    private CompletableFuture<Void> initDatabase() {
+        if (closed || !databaseInitRunning.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
         return treasureRepo.createTableIfNotExists()
-                .thenCompose(v -> loadAllTreasuresToCache())
-                .thenRun(() -> plugin.getLogger().info("TreasureManager initialized and table ensured."))
+                .thenRun(redemptionStore::open)
+                .thenCompose(v -> leaderboard.load().exceptionally(ex -> {
+                    plugin.getLogger().log(Level.SEVERE, "Failed to load leaderboard", ex);
+                    return null;
+                }))
+                .thenCompose(v -> treasureRepo.getLatestChangeId())
+                .thenCompose(changeId -> loadAllTreasuresToCache().thenRun(() -> changeLogPoller.start(changeId)))
+                .thenRun(sessionManager::loadOnlinePlayers)
+                .thenRun(nameCache::loadOnlinePlayers)
+                .thenRun(() -> {
+                    databaseReady = true;
+                    plugin.getLogger().info("TreasureManager initialized and table ensured.");
+                })
+                .thenRun(journal::replay)
+                .whenComplete((v, ex) -> databaseInitRunning.set(false))
                 .exceptionally(ex -> {
-                    plugin.getLogger().log(Level.SEVERE, "Failed to initialize TreasureManager", ex);
+                    if (databaseReady) {
+                        plugin.getLogger().log(Level.SEVERE, "Failed to replay the claim journal", ex);
+                        return null;
+                    }
+                    plugin.getLogger().log(Level.SEVERE, "Failed to initialize TreasureManager, retrying when the database is reachable", ex);
+                    if (dbRepo.getCircuitBreaker().allowRequest()) {
+                        CompletableFuture.delayedExecutor(INIT_RETRY_SECONDS, TimeUnit.SECONDS).execute(this::initDatabase);
+                    }
                     return null;
                 });
     }
 
     private CompletableFuture<Void> loadAllTreasuresToCache() {
         return treasureRepo.getAllTreasures().thenAccept(list -> {
-            treasureCache.clear();
+            if (list == null) {
+                plugin.getLogger().warning("Could not load treasures from the database, keeping " + treasureCache.size() + " cached treasures.");
+                throw new IllegalStateException("Treasure catalog could not be loaded");
+            }
+
+            long watermark = 0;
             for (TreasureRecord r : list) {
-                treasureCache.put(r.getId(), r);
+                watermark = Math.max(watermark, r.getUpdatedAt());
             }
+            replaceCache(list, watermark);
             plugin.getLogger().info("Loaded " + list.size() + " treasures into cache.");
         });
     }
 
+    private synchronized void replaceCache(Collection<TreasureRecord> records, long watermark) {
+        Map<String, TreasureRecord> byId = new HashMap<>(records.size() * 2);
+        Map<Integer, TreasureRecord> byKey = new HashMap<>(records.size() * 2);
+        for (TreasureRecord r : records) {
+            byId.put(r.getId(), r);
+            byKey.put(r.getKey(), r);
+        }
+
+        treasureCache.keySet().retainAll(byId.keySet());
+        treasureCache.putAll(byId);
+        treasureKeys.keySet().retainAll(byKey.keySet());
+        treasureKeys.putAll(byKey);
+        treasureIndex.rebuild(byId.values());
+        syncWatermark = watermark;
+        snapshot.scheduleWrite();
+        sessionManager.refreshProgress(treasureCache::values);
+        markers.refreshAll();
+    }
+
+    public synchronized void upsertCached(TreasureRecord record) {
+        TreasureRecord previous = treasureCache.get(record.getId());
+        if (previous != null && previous.getUpdatedAt() > record.getUpdatedAt()) {
+            return;
+        }
+
+        treasureCache.put(record.getId(), record);
+        if (previous != null && previous.getKey() != record.getKey()) {
+            treasureKeys.remove(previous.getKey(), previous);
+        }
+        treasureKeys.put(record.getKey(), record);
+        treasureIndex.put(previous, record);
+        syncWatermark = Math.max(syncWatermark, record.getUpdatedAt());
+        snapshot.scheduleWrite();
+        if (previous == null || previous.getKey() != record.getKey()) {
+            sessionManager.refreshProgress(treasureCache::values);
+        }
+        markers.refreshAll();
+    }
+
+    public synchronized TreasureRecord removeCached(String treasureId) {
+        TreasureRecord removed = treasureCache.remove(treasureId);
+        if (removed != null) {
+            treasureKeys.remove(removed.getKey(), removed);
+            treasureIndex.remove(removed);
+            sessionManager.forgetTreasure(removed.getKey());
+            leaderboard.forgetTreasure(removed.getKey());
+            pageCursors.invalidate("completed:" + removed.getKey());
+            snapshot.scheduleWrite();
+            sessionManager.refreshProgress(treasureCache::values);
+            markers.refreshAll();
+        }
+        return removed;
+    }
+
+    public CompletableFuture<TreasureRecord> createTreasure(String treasureId, String world, int x, int y, int z, String command) {
+        return treasureRepo.insertTreasure(treasureId, world, x, y, z, command).thenApply(record -> {
+            if (record != null) {
+                upsertCached(record);
+            }
+            return record;
+        });
+    }
+
     public Map<String, TreasureRecord> getCachedTreasures() {
         return Collections.unmodifiableMap(treasureCache);
     }
 
+    public TreasureRecord getTreasureAt(String world, int x, int y, int z) {
+        return treasureIndex.get(world, x, y, z);
+    }
+
+    public TreasureRecord[] getTreasuresInChunk(String world, int chunkX, int chunkZ) {
+        return treasureIndex.getCell(world, chunkX, chunkZ);
+    }
+
+    public List<TreasureRecord> getNearestUnclaimed(String world, double x, double y, double z, int count, Set<Integer> redeemed) {
+        return treasureIndex.nearestNeighbors(world, x, y, z, count, Double.MAX_VALUE, redeemed);
+    }
+
+    public List<TreasureRecord> getUnclaimedWithin(String world, double x, double y, double z, double radius, Set<Integer> redeemed) {
+        return treasureIndex.within(world, x, y, z, radius, redeemed);
+    }
+
+    public TreasureRecord findNearest(String world, double x, double y, double z, int radius, Set<Integer> exclude) {
+        return treasureIndex.nearest(world, x, y, z, radius, exclude);
+    }
+
     public CompletableFuture<Void> refreshCache() {
-        return loadAllTreasuresToCache();
+        long since = Math.max(0L, syncWatermark - SYNC_OVERLAP_MILLIS);
+        return treasureRepo.getTreasuresChangedSince(since)
+                .thenAccept(changed -> changed.forEach(this::upsertCached))
+                .thenCompose(v -> treasureRepo.countTreasures())
+                .thenCompose(count -> {
+                    if (count < 0 || count == treasureCache.size()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
+                    return treasureRepo.getTreasureKeys().thenAccept(this::pruneMissing);
+                });
+    }
+
+    private void pruneMissing(List<Integer> keys) {
+        if (keys == null) {
+            return;
+        }
+
+        Set<Integer> present = new HashSet<>(keys);
+        for (TreasureRecord r : new ArrayList<>(treasureCache.values())) {
+            if (!present.contains(r.getKey())) {
+                removeCached(r.getId());
+            }
+        }
+    }
+
+    public PlayerProgress getProgress(UUID player) {
+        return progressTracker.get(player);
+    }
+
+    public TreasureRecord getTreasureByKey(int treasureKey) {
+        return treasureKeys.get(treasureKey);
+    }
+
+    public CompletableFuture<ClaimResult> claim(UUID player, String treasureId) {
+        TreasureRecord treasure = treasureCache.get(treasureId);
+        if (treasure == null) {
+            return CompletableFuture.completedFuture(ClaimResult.FAILED);
+        }
+
+        int treasureKey = treasure.getKey();
+        ClaimKey key = new ClaimKey(player, treasureKey);
+        CompletableFuture<ClaimResult> promise = new CompletableFuture<>();
+        CompletableFuture<ClaimResult> inflight = inflightClaims.putIfAbsent(key, promise);
+        if (inflight != null) {
+            return inflight.thenApply(result -> result == ClaimResult.CLAIMED ? ClaimResult.ALREADY_CLAIMED : result);
+        }
+
+        sessionManager.getRedeemed(player)
+                .thenApply(set -> set.contains(treasureKey))
+                .exceptionallyCompose(ex -> {
+                    int state = redemptionStore.state(player, treasureKey);
+                    return state == RedemptionStore.UNKNOWN
+                            ? CompletableFuture.failedFuture(ex)
+                            : CompletableFuture.completedFuture(state == RedemptionStore.PRESENT);
+                })
+                .thenCompose(redeemed -> redeemed
+                        ? CompletableFuture.completedFuture(ClaimResult.ALREADY_CLAIMED)
+                        : persistClaim(new RedemptionRecord(player, treasureKey, System.currentTimeMillis())))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        plugin.getLogger().log(Level.SEVERE, "Failed to claim treasure " + treasureId + " for " + player, ex);
+                        result = ClaimResult.FAILED;
+                    } else if (result != ClaimResult.FAILED) {
+                        sessionManager.markRedeemed(player, treasureKey);
+                        markers.treasureClaimed(player, treasure);
+                    }
+
+                    inflightClaims.remove(key, promise);
+                    promise.complete(result);
+                });
+
+        return promise;
+    }
+
+    private CompletableFuture<ClaimResult> persistClaim(RedemptionRecord record) {
+        if (!treasureRepo.isAvailable()) {
+            return journalClaim(record);
+        }
+        if (writeQueue.offer(record)) {
+            return CompletableFuture.completedFuture(ClaimResult.CLAIMED);
+        }
+
+        return treasureRepo.addRedeemed(record.getPlayer(), record.getTreasureKey())
+                .exceptionally(ex -> ClaimResult.FAILED)
+                .thenCompose(result -> result == ClaimResult.FAILED && !treasureRepo.isAvailable()
+                        ? journalClaim(record)
+                        : CompletableFuture.completedFuture(result));
+    }
+
+    private CompletableFuture<ClaimResult> journalClaim(RedemptionRecord record) {
+        return journal.append(record).thenApply(journaled -> journaled ? ClaimResult.CLAIMED : ClaimResult.FAILED);
     }
 
     public CompletableFuture<Boolean> redeemTreasure(UUID player, String treasureId) {
-        return treasureRepo.addRedeemed(player, treasureId);
+        return claim(player, treasureId).thenApply(result -> result == ClaimResult.CLAIMED);
     }
 
     public CompletableFuture<Boolean> unredeemTreasure(UUID player, String treasureId) {
-        return treasureRepo.removeRedeemed(player, treasureId);
+        TreasureRecord treasure = treasureCache.get(treasureId);
+        if (treasure == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        int treasureKey = treasure.getKey();
+        return writeQueue.cancel(player, treasureKey).thenCompose(queued ->
+                treasureRepo.removeRedeemed(player, treasureKey).thenApply(removed -> {
+                    if (removed || queued) {
+                        sessionManager.markUnredeemed(player, treasureKey);
+                        markers.refresh(player);
+                    }
+                    return removed || queued;
+                }));
     }
 
     public CompletableFuture<Boolean> isRedeemed(UUID player, String treasureId) {
-        return treasureRepo.isRedeemed(player, treasureId);
+        TreasureRecord treasure = treasureCache.get(treasureId);
+        if (treasure == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        int state = redemptionStore.state(player, treasure.getKey());
+        if (state != RedemptionStore.UNKNOWN) {
+            return CompletableFuture.completedFuture(state == RedemptionStore.PRESENT);
+        }
+        return sessionManager.getRedeemed(player).thenApply(set -> set.contains(treasure.getKey()));
     }
 
     public CompletableFuture<List<String>> getRedeemed(UUID player) {
-        return treasureRepo.getRedeemedForPlayer(player);
+        return treasureRepo.getRedeemedForPlayer(player).thenApply(keys -> {
+            List<String> out = new ArrayList<>(keys.size());
+            for (int treasureKey : keys) {
+                TreasureRecord r = treasureKeys.get(treasureKey);
+                if (r != null) {
+                    out.add(r.getId());
+                }
+            }
+            return out;
+        });
     }
 
     public CompletableFuture<Integer> deleteTreasure(String treasureId) {
-        return treasureRepo.deleteTreasure(treasureId).thenApply(affected -> {
+        TreasureRecord treasure = treasureCache.get(treasureId);
+        CompletableFuture<Long> cleared = treasure == null
+                ? CompletableFuture.completedFuture(0L)
+                : clearRedemptions(ResetScope.TREASURE, treasure.getKey(), null, deleted -> {});
+
+        return cleared.handle((deleted, ex) -> {
+            if (ex != null) {
+                plugin.getLogger().log(Level.WARNING, "Chunked reset of " + treasureId + " stopped early, deleting the rest in one transaction", ex);
+            }
+            return null;
+        }).thenCompose(v -> treasureRepo.deleteTreasure(treasureId)).thenApply(affected -> {
             if (affected > 0) {
-                treasureCache.remove(treasureId);
+                removeCached(treasureId);
             }
             return affected;
         });
     }
 
-    public CompletableFuture<List<String>> getPlayersWhoRedeemed(String treasureId) {
-        return treasureRepo.getPlayersRedeemed(treasureId).thenApply(list -> {
-            List<String> out = new ArrayList<>();
-            for (String s : list) {
-                try {
-                    UUID uuid = UUID.fromString(s);
-                    OfflinePlayer off = Bukkit.getOfflinePlayer(uuid);
-                    String name = off.getName();
-                    out.add(name != null ? name : uuid.toString());
-                } catch (IllegalArgumentException ex) {
-                    out.add(s);
+    public CompletableFuture<Long> resetRedemptions(ResetScope scope, int treasureKey, UUID player, LongConsumer progress) {
+        if (!resetRunning.compareAndSet(false, true)) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Another reset is already running"));
+        }
+
+        resettingAll = scope == ResetScope.ALL;
+        return clearRedemptions(scope, treasureKey, player, progress).whenComplete((deleted, ex) -> {
+            if (scope == ResetScope.ALL) {
+                treasureRepo.appendRedemptionsReset();
+                resettingAll = false;
+                if (deferredResetAll.getAndSet(false)) {
+                    applyRemoteResetAll();
                 }
             }
-            return out;
+            resetRunning.set(false);
         });
     }
 
+    public void remoteResetAll() {
+        if (resettingAll) {
+            deferredResetAll.set(true);
+            if (resettingAll || !deferredResetAll.getAndSet(false)) {
+                return;
+            }
+        }
+        applyRemoteResetAll();
+    }
+
+    private void applyRemoteResetAll() {
+        leaderboard.countsStale(null, null);
+        sessionManager.invalidateAll();
+    }
+
+    private CompletableFuture<Long> clearRedemptions(ResetScope scope, int treasureKey, UUID player, LongConsumer progress) {
+        ResetJob job = new ResetJob(scope, treasureKey, player, progress);
+        writeQueue.cancel(r -> switch (scope) {
+            case TREASURE -> r.getTreasureKey() == treasureKey;
+            case PLAYER -> r.getPlayer().equals(player);
+            case ALL -> true;
+        }).thenRun(() -> resetChunk(job, null));
+        return job.result.whenComplete((deleted, ex) -> {
+            switch (scope) {
+                case TREASURE -> pageCursors.invalidate("completed:" + treasureKey);
+                case PLAYER -> pageCursors.invalidate("history:" + player);
+                case ALL -> pageCursors.clear();
+            }
+            markers.refreshAll();
+        });
+    }
+
+    private void resetChunk(ResetJob job, PageCursor after) {
+        treasureRepo.deleteRedeemedChunk(job.scope, job.treasureKey, job.player, after, resetChunkSize).whenComplete((chunk, ex) -> {
+            if (ex != null || chunk == null) {
+                job.result.completeExceptionally(ex != null ? ex : new IllegalStateException("Database error after " + job.deleted + " rows"));
+                return;
+            }
+
+            for (RedemptionRecord r : chunk.getEntries()) {
+                sessionManager.markUnredeemed(r.getPlayer(), r.getTreasureKey());
+            }
+            job.deleted += chunk.getEntries().size();
+
+            if (!chunk.isHasMore()) {
+                job.result.complete(job.deleted);
+                return;
+            }
+
+            job.progress.accept(job.deleted);
+            CompletableFuture.delayedExecutor(resetPauseMillis, TimeUnit.MILLISECONDS)
+                    .execute(() -> resetChunk(job, chunk.getNext()));
+        });
+    }
+
+    public CompletableFuture<RedemptionPage> getCompletedPage(UUID viewer, String treasureId, int page, boolean archived) {
+        TreasureRecord treasure = treasureCache.get(treasureId);
+        if (treasure == null) {
+            return CompletableFuture.completedFuture(RedemptionPage.empty());
+        }
+
+        int treasureKey = treasure.getKey();
+        return browse(viewer, "completed:" + treasureKey + (archived ? ":archive" : ""), page,
+                (after, skip) -> treasureRepo.getPlayersRedeemed(treasureKey, after, skip, pageSize, archived))
+                .thenApply(result -> {
+                    nameCache.putAll(result.getNames());
+                    return result;
+                });
+    }
+
+    public CompletableFuture<RedemptionPage> getHistoryPage(UUID viewer, UUID player, int page, boolean archived) {
+        return browse(viewer, "history:" + player + (archived ? ":archive" : ""), page,
+                (after, skip) -> treasureRepo.getRedeemedHistory(player, after, skip, pageSize, archived));
+    }
+
+    public void invalidatePages() {
+        pageCursors.clear();
+    }
+
+    private CompletableFuture<RedemptionPage> browse(UUID viewer, String query, int page,
+                                                     BiFunction<PageCursor, Integer, CompletableFuture<RedemptionPage>> fetch) {
+        int requested = Math.max(1, page);
+        PageCursorCache.Position position = pageCursors.seek(viewer, query, requested);
+        int skip = (requested - position.page()) * pageSize;
+
+        return fetch.apply(position.cursor(), skip).thenApply(result -> {
+            if (!result.isEmpty()) {
+                pageCursors.record(viewer, query, requested + 1, result.getNext());
+            }
+            return result;
+        });
+    }
+
+    public String resolveName(UUID uuid) {
+        return nameCache.resolve(uuid);
+    }
+
     public void close() {
+        closed = true;
+        closeQuietly("build sessions", placementManager::close);
+        closeQuietly("reward executor", rewardExecutor::close);
+        closeQuietly("proximity hints", proximityHints::close);
+        closeQuietly("treasure markers", markers::close);
+        closeQuietly("write-behind queue", writeQueue::close);
+        closeQuietly("claim journal", journal::close);
+        closeQuietly("change log poller", changeLogPoller::close);
+        closeQuietly("snapshot", snapshot::close);
+        closeQuietly("redemption store", redemptionStore::close);
+        closeQuietly("database", dbRepo::close);
+    }
+
+    private void closeQuietly(String name, Runnable close) {
         try {
-            dbRepo.close();
+            close.run();
         } catch (Exception ex) {
-            plugin.getLogger().log(Level.WARNING, "Error closing TreasureManager resources", ex);
+            plugin.getLogger().log(Level.WARNING, "Error closing " + name, ex);
+        }
+    }
+
+    private record ClaimKey(UUID player, int treasureKey) {
+    }
+
+    private static class ResetJob {
+        final ResetScope scope;
+        final int treasureKey;
+        final UUID player;
+        final LongConsumer progress;
+        final CompletableFuture<Long> result = new CompletableFuture<>();
+        long deleted;
+
+        ResetJob(ResetScope scope, int treasureKey, UUID player, LongConsumer progress) {
+            this.scope = scope;
+            this.treasureKey = treasureKey;
+            this.player = player;
+            this.progress = progress;
         }
     }
 }
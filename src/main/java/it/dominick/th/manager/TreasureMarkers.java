@@ -0,0 +1,320 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.TreasureRecord;
+import lombok.Getter;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TreasureMarkers implements Listener {
+
+    public static final String PERMISSION = "treasurehunt.markers";
+    private static final long TELEPORT_REFRESH_TICKS = 20L;
+
+    private final TreasureHunt plugin;
+    private final TreasureManager treasureManager;
+    @Getter
+    private final boolean enabled;
+    private final boolean showOnJoin;
+    private final int maxViewDistance;
+    private final int maxPerPlayer;
+    private final BlockData markerData;
+    private final Map<UUID, MarkerView> views = new ConcurrentHashMap<>();
+    private final AtomicBoolean refreshScheduled = new AtomicBoolean();
+
+    public TreasureMarkers(TreasureHunt plugin, TreasureManager treasureManager) {
+        this.plugin = plugin;
+        this.treasureManager = treasureManager;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = config.getBooleanOrDefault(ConfigFile.CONFIG, "markers.enabled", false);
+        this.showOnJoin = config.getBooleanOrDefault(ConfigFile.CONFIG, "markers.showOnJoin", false);
+        this.maxViewDistance = Math.min(32, Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "markers.maxViewDistance", 8)));
+        this.maxPerPlayer = Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "markers.maxPerPlayer", 256));
+
+        String blockName = config.getStringOrDefault(ConfigFile.CONFIG, "markers.block", "SEA_LANTERN");
+        Material material = Material.matchMaterial(blockName);
+        if (material == null || !material.isBlock()) {
+            plugin.getLogger().warning("Invalid marker block " + blockName + ", using GLOWSTONE");
+            material = Material.GLOWSTONE;
+        }
+        this.markerData = material.createBlockData();
+
+        if (enabled) {
+            Bukkit.getPluginManager().registerEvents(this, plugin);
+        }
+    }
+
+    public boolean isShown(UUID player) {
+        return views.containsKey(player);
+    }
+
+    public int show(Player player) {
+        MarkerView view = views.computeIfAbsent(player.getUniqueId(), uuid -> new MarkerView());
+        update(player, view, player.getLocation(), true);
+        treasureManager.getSessionManager().getRedeemed(player.getUniqueId()).thenRun(() -> refresh(player.getUniqueId()));
+        return view.shown.size();
+    }
+
+    public int hide(Player player) {
+        MarkerView view = views.remove(player.getUniqueId());
+        if (view == null) {
+            return 0;
+        }
+
+        int hidden = view.shown.size();
+        for (TreasureRecord record : view.shown.values()) {
+            restore(player, view.world, record);
+        }
+        view.shown.clear();
+        return hidden;
+    }
+
+    public void treasureClaimed(UUID player, TreasureRecord treasure) {
+        if (!views.containsKey(player)) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            Player online = Bukkit.getPlayer(player);
+            MarkerView view = views.get(player);
+            if (online != null && view != null && view.shown.remove(treasure.getKey(), treasure)) {
+                restore(online, view.world, treasure);
+            }
+        });
+    }
+
+    public void refresh(UUID player) {
+        refresh(player, 0L);
+    }
+
+    private void refresh(UUID player, long delayTicks) {
+        if (!views.containsKey(player)) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            Player online = Bukkit.getPlayer(player);
+            MarkerView view = views.get(player);
+            if (online != null && view != null) {
+                update(online, view, online.getLocation(), true);
+            }
+        }, delayTicks);
+    }
+
+    public void refreshAll() {
+        if (views.isEmpty() || !refreshScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            refreshScheduled.set(false);
+            views.forEach((uuid, view) -> {
+                Player online = Bukkit.getPlayer(uuid);
+                if (online != null) {
+                    update(online, view, online.getLocation(), true);
+                }
+            });
+        });
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        if (showOnJoin && player.hasPermission(PERMISSION)) {
+            show(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        move(event);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        relocate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        relocate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        relocate(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        views.remove(event.getPlayer().getUniqueId());
+    }
+
+    private void relocate(Player player) {
+        MarkerView view = views.get(player.getUniqueId());
+        if (view == null) {
+            return;
+        }
+
+        view.shown.clear();
+        view.world = null;
+        refresh(player.getUniqueId(), TELEPORT_REFRESH_TICKS);
+    }
+
+    private void move(PlayerMoveEvent event) {
+        if (views.isEmpty()) {
+            return;
+        }
+
+        Location from = event.getFrom();
+        Location to = event.getTo();
+        if (to == null || ((from.getBlockX() >> 4) == (to.getBlockX() >> 4)
+                && (from.getBlockZ() >> 4) == (to.getBlockZ() >> 4)
+                && from.getWorld() == to.getWorld())) {
+            return;
+        }
+
+        MarkerView view = views.get(event.getPlayer().getUniqueId());
+        if (view != null && view.world != null) {
+            update(event.getPlayer(), view, to, false);
+        }
+    }
+
+    private void update(Player player, MarkerView view, Location location, boolean full) {
+        World world = location.getWorld();
+        Set<Integer> redeemed = treasureManager.getSessionManager().getLoaded(player.getUniqueId());
+        if (world == null || redeemed == null) {
+            return;
+        }
+
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+        int radius = Math.max(0, Math.min(maxViewDistance, Math.min(player.getClientViewDistance(), world.getViewDistance()) - 1));
+
+        if (view.world != world) {
+            view.shown.clear();
+            full = true;
+        }
+
+        if (full) {
+            Set<Integer> visible = new HashSet<>();
+            for (int cx = chunkX - radius; cx <= chunkX + radius; cx++) {
+                for (int cz = chunkZ - radius; cz <= chunkZ + radius; cz++) {
+                    showCell(player, view, world, cx, cz, redeemed, visible);
+                }
+            }
+            Iterator<TreasureRecord> it = view.shown.values().iterator();
+            while (it.hasNext()) {
+                TreasureRecord record = it.next();
+                if (!visible.contains(record.getKey())) {
+                    it.remove();
+                    restore(player, world, record);
+                }
+            }
+        } else {
+            Iterator<TreasureRecord> it = view.shown.values().iterator();
+            while (it.hasNext()) {
+                TreasureRecord record = it.next();
+                if (Math.abs((record.getX() >> 4) - chunkX) > radius || Math.abs((record.getZ() >> 4) - chunkZ) > radius) {
+                    it.remove();
+                    restore(player, world, record);
+                }
+            }
+            for (int cx = chunkX - radius; cx <= chunkX + radius; cx++) {
+                for (int cz = chunkZ - radius; cz <= chunkZ + radius; cz++) {
+                    if (Math.abs(cx - view.chunkX) > view.radius || Math.abs(cz - view.chunkZ) > view.radius) {
+                        showCell(player, view, world, cx, cz, redeemed, null);
+                    }
+                }
+            }
+        }
+
+        view.world = world;
+        view.chunkX = chunkX;
+        view.chunkZ = chunkZ;
+        view.radius = radius;
+    }
+
+    private void showCell(Player player, MarkerView view, World world, int chunkX, int chunkZ, Set<Integer> redeemed, Set<Integer> visible) {
+        TreasureRecord[] cell = treasureManager.getTreasuresInChunk(world.getName(), chunkX, chunkZ);
+        if (cell == null) {
+            return;
+        }
+
+        for (TreasureRecord record : cell) {
+            if (redeemed.contains(record.getKey())) {
+                continue;
+            }
+
+            TreasureRecord shown = view.shown.get(record.getKey());
+            if (shown != null && shown != record) {
+                view.shown.remove(record.getKey());
+                restore(player, world, shown);
+                shown = null;
+            }
+            if (shown == null) {
+                if (view.shown.size() >= maxPerPlayer) {
+                    continue;
+                }
+                view.shown.put(record.getKey(), record);
+                player.sendBlockChange(new Location(world, record.getX(), record.getY(), record.getZ()), markerData);
+            }
+            if (visible != null) {
+                visible.add(record.getKey());
+            }
+        }
+    }
+
+    private void restore(Player player, World world, TreasureRecord record) {
+        if (world == null || player.getWorld() != world) {
+            return;
+        }
+        player.sendBlockChange(new Location(world, record.getX(), record.getY(), record.getZ()),
+                world.getBlockAt(record.getX(), record.getY(), record.getZ()).getBlockData());
+    }
+
+    public void close() {
+        for (Map.Entry<UUID, MarkerView> entry : views.entrySet()) {
+            Player player = Bukkit.getPlayer(entry.getKey());
+            if (player != null) {
+                for (TreasureRecord record : entry.getValue().shown.values()) {
+                    restore(player, entry.getValue().world, record);
+                }
+            }
+        }
+        views.clear();
+    }
+
+    private static class MarkerView {
+        final Map<Integer, TreasureRecord> shown = new HashMap<>();
+        World world;
+        int chunkX;
+        int chunkZ;
+        int radius = -1;
+    }
+}
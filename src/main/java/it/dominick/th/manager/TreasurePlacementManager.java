@@ -1,9 +1,13 @@
 package it.dominick.th.manager;
 
 import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
 import it.dominick.th.config.ConfigManager;
-import it.dominick.th.repository.TreasureRepository;
+import it.dominick.th.model.TreasureDefinition;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.repository.TreasureStorage;
 import it.dominick.th.util.ChatUtils;
+import it.dominick.th.util.TimingWheel;
 import net.kyori.adventure.title.Title;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
@@ -11,29 +15,52 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.scheduler.BukkitTask;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class TreasurePlacementManager implements Listener {
 
+    private static final int SWEEP_INTERVAL_TICKS = 20;
+    private static final int WHEEL_SLOTS = 64;
+
     private final TreasureHunt plugin;
     private final ConfigManager config;
-    private final TreasureRepository treasureRepo;
-    private final Map<java.util.UUID, PendingPlacement> pending = new ConcurrentHashMap<>();
+    private final TreasureManager treasureManager;
+    private final TreasureStorage treasureRepo;
+    private final Map<UUID, PendingPlacement> pending = new ConcurrentHashMap<>();
+    private final TimingWheel<PendingPlacement> expirations = new TimingWheel<>(WHEEL_SLOTS);
+    private final Set<String> reservedIds = ConcurrentHashMap.newKeySet();
+    private final int sessionTimeoutSeconds;
+    private final int sessionBatchSize;
+    private BukkitTask sweeper;
 
-    public TreasurePlacementManager(TreasureHunt plugin, TreasureRepository treasureRepo) {
+    public TreasurePlacementManager(TreasureHunt plugin, TreasureManager treasureManager, TreasureStorage treasureRepo) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
+        this.treasureManager = treasureManager;
         this.treasureRepo = treasureRepo;
+        this.sessionTimeoutSeconds = Math.max(10, config.getIntOrDefault(ConfigFile.CONFIG, "build.idleTimeoutSeconds", 300));
+        this.sessionBatchSize = Math.min(5000, Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "build.batchSize", 500)));
         Bukkit.getPluginManager().registerEvents(this, plugin);
     }
 
     public void waitForPlacement(Player player, String id, String command, long timeoutSeconds) {
-        PendingPlacement placement = new PendingPlacement(id, command);
-        pending.put(player.getUniqueId(), placement);
+        PendingPlacement placement = new PendingPlacement(player.getUniqueId(), id, command, null);
+        replace(placement, (int) timeoutSeconds);
 
         Title.Times times = Title.Times.times(
                 Duration.ofMillis(10 * 50L),
@@ -51,16 +78,43 @@ public class TreasurePlacementManager implements Listener {
 
         ChatUtils.send(player, config.getString("createCmd.info-message"),
                 "%seconds%", String.valueOf(timeoutSeconds));
+    }
 
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
-            PendingPlacement p = pending.remove(player.getUniqueId());
-            if (p != null) {
-                ChatUtils.send(player, config.getString("createCmd.timeout"));
-            }
-        }, TimeUnit.SECONDS.toSeconds(timeoutSeconds) * 20);
+    public void startSession(Player player, String prefix, String command) {
+        BuildSession session = new BuildSession(prefix, nextIndex(prefix));
+        replace(new PendingPlacement(player.getUniqueId(), null, command, session), sessionTimeoutSeconds);
+        ChatUtils.send(player, config.getString("buildCmd.started"),
+                "%prefix%", prefix,
+                "%seconds%", String.valueOf(sessionTimeoutSeconds));
+    }
+
+    public CompletableFuture<Integer> finishSession(UUID uuid) {
+        PendingPlacement p = pending.get(uuid);
+        if (p == null || p.session == null) {
+            return CompletableFuture.completedFuture(-1);
+        }
+
+        remove(p);
+        return save(p.player, p.session.placements);
+    }
+
+    public int cancelSession(UUID uuid) {
+        PendingPlacement p = pending.get(uuid);
+        if (p == null || p.session == null) {
+            return -1;
+        }
+
+        remove(p);
+        release(p.session.placements);
+        return p.session.placements.size();
+    }
+
+    public int getSessionSize(UUID uuid) {
+        PendingPlacement p = pending.get(uuid);
+        return p != null && p.session != null ? p.session.placements.size() : -1;
     }
 
-    public boolean isPlayerPending(java.util.UUID uuid) {
+    public boolean isPlayerPending(UUID uuid) {
         return pending.containsKey(uuid);
     }
 
@@ -71,6 +125,8 @@ public class TreasurePlacementManager implements Listener {
         if (p == null) return;
 
         if (event.getClickedBlock() == null) return;
+        event.setCancelled(true);
+        if (event.getHand() != EquipmentSlot.HAND) return;
 
         Location loc = event.getClickedBlock().getLocation();
         String world = loc.getWorld() != null ? loc.getWorld().getName() : "world";
@@ -78,9 +134,14 @@ public class TreasurePlacementManager implements Listener {
         int y = loc.getBlockY();
         int z = loc.getBlockZ();
 
-        treasureRepo.insertTreasure(p.id, world, x, y, z, p.command).thenAccept(success -> {
-            if (success) {
-                plugin.getTreasureManager().refreshCache();
+        if (p.session != null) {
+            place(player, p, world, x, y, z);
+            return;
+        }
+
+        remove(p);
+        treasureManager.createTreasure(p.id, world, x, y, z, p.command).thenAccept(record -> {
+            if (record != null) {
                 ChatUtils.send(player, config.getString("createCmd.success"), "%id%", p.id, "%x%", String.valueOf(x), "%y%", String.valueOf(y), "%z%", String.valueOf(z), "%world%", world);
             } else {
                 ChatUtils.send(player, config.getString("createCmd.error"));
@@ -88,18 +149,227 @@ public class TreasurePlacementManager implements Listener {
 
             player.resetTitle();
         });
+    }
 
-        pending.remove(player.getUniqueId());
-        event.setCancelled(true);
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        PendingPlacement p = pending.get(event.getPlayer().getUniqueId());
+        if (p != null) {
+            remove(p);
+            if (p.session != null) {
+                save(p.player, p.session.placements);
+            }
+        }
+    }
+
+    private void place(Player player, PendingPlacement p, String world, int x, int y, int z) {
+        BuildSession session = p.session;
+        TreasureRecord existing = treasureManager.getTreasureAt(world, x, y, z);
+        String taken = existing != null ? existing.getId() : session.idAt(world, x, y, z);
+        if (taken != null) {
+            ChatUtils.send(player, config.getString("buildCmd.occupied"), "%id%", taken);
+            return;
+        }
+
+        String id;
+        do {
+            id = session.prefix + "-" + session.nextIndex++;
+        } while (treasureManager.getCachedTreasures().containsKey(id) || !reservedIds.add(id));
+
+        session.placements.add(new TreasureDefinition(id, world, x, y, z, p.command));
+        p.timeout.cancel();
+        p.timeout = schedule(p, sessionTimeoutSeconds);
+        ChatUtils.send(player, config.getString("buildCmd.placed"),
+                "%id%", id,
+                "%count%", String.valueOf(session.placements.size()),
+                "%x%", String.valueOf(x), "%y%", String.valueOf(y), "%z%", String.valueOf(z));
+    }
+
+    private CompletableFuture<Integer> save(UUID owner, List<TreasureDefinition> placements) {
+        if (placements.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        return treasureRepo.insertNewTreasures(placements, sessionBatchSize)
+                .thenCompose(rejected -> {
+                    if (rejected == null) {
+                        return CompletableFuture.completedFuture(-1);
+                    }
+                    if (!rejected.isEmpty()) {
+                        reject(owner, placements, rejected);
+                    }
+                    int count = placements.size() - rejected.size();
+                    return count <= 0
+                            ? CompletableFuture.completedFuture(count)
+                            : treasureManager.refreshCache().thenApply(v -> count);
+                })
+                .whenComplete((count, ex) -> {
+                    release(placements);
+                    if (ex != null || count < 0) {
+                        plugin.getLogger().log(Level.SEVERE, "Failed to save " + placements.size() + " treasures from a build session", ex);
+                        dump(placements);
+                    }
+                });
+    }
+
+    private void reject(UUID owner, List<TreasureDefinition> placements, List<String> rejected) {
+        Set<String> taken = new HashSet<>(rejected);
+        List<TreasureDefinition> skipped = new ArrayList<>(rejected.size());
+        for (TreasureDefinition d : placements) {
+            if (taken.contains(d.getId())) {
+                skipped.add(d);
+            }
+        }
+
+        plugin.getLogger().warning("Skipped " + rejected.size() + " build session treasures whose ids already exist: " + rejected);
+        dump(skipped);
+        Player player = Bukkit.getPlayer(owner);
+        if (player != null) {
+            ChatUtils.send(player, config.getString("buildCmd.rejected"),
+                    "%count%", String.valueOf(rejected.size()),
+                    "%ids%", String.join(", ", rejected));
+        }
+    }
+
+    private void release(List<TreasureDefinition> placements) {
+        for (TreasureDefinition d : placements) {
+            reservedIds.remove(d.getId());
+        }
+    }
+
+    private void dump(List<TreasureDefinition> placements) {
+        try {
+            Path path = treasureManager.getTransfer().dumpDefinitions("build", placements);
+            plugin.getLogger().warning("Wrote " + placements.size() + " unsaved build session treasures to " + path + ", restore them with /th import");
+        } catch (IOException | RuntimeException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to write unsaved build session treasures: " + placements, ex);
+        }
+    }
+
+    private void expire(PendingPlacement p) {
+        if (!pending.remove(p.player, p)) {
+            return;
+        }
+
+        Player player = Bukkit.getPlayer(p.player);
+        if (p.session == null) {
+            if (player != null) {
+                ChatUtils.send(player, config.getString("createCmd.timeout"));
+            }
+            return;
+        }
+
+        int placed = p.session.placements.size();
+        save(p.player, p.session.placements).thenAccept(count -> {
+            if (player != null) {
+                ChatUtils.send(player, config.getString("buildCmd.timeout"), "%count%", String.valueOf(Math.max(0, count)), "%placed%", String.valueOf(placed));
+            }
+        });
+    }
+
+    private void replace(PendingPlacement placement, int timeoutSeconds) {
+        PendingPlacement previous = pending.put(placement.player, placement);
+        if (previous != null) {
+            previous.timeout.cancel();
+            if (previous.session != null) {
+                save(previous.player, previous.session.placements);
+            }
+        }
+        placement.timeout = schedule(placement, timeoutSeconds);
+    }
+
+    private void remove(PendingPlacement p) {
+        pending.remove(p.player, p);
+        p.timeout.cancel();
+    }
+
+    private TimingWheel.Timeout<PendingPlacement> schedule(PendingPlacement placement, int timeoutSeconds) {
+        TimingWheel.Timeout<PendingPlacement> timeout = expirations.schedule(placement, Math.max(1, timeoutSeconds));
+        if (sweeper == null) {
+            sweeper = Bukkit.getScheduler().runTaskTimer(plugin, this::sweep, SWEEP_INTERVAL_TICKS, SWEEP_INTERVAL_TICKS);
+        }
+        return timeout;
+    }
+
+    private void sweep() {
+        expirations.advance(this::expire);
+        if (expirations.isEmpty() && sweeper != null) {
+            sweeper.cancel();
+            sweeper = null;
+        }
+    }
+
+    private int nextIndex(String prefix) {
+        int next = 1;
+        String start = prefix + "-";
+        for (String id : treasureManager.getCachedTreasures().keySet()) {
+            next = nextIndex(start, id, next);
+        }
+        for (String id : reservedIds) {
+            next = nextIndex(start, id, next);
+        }
+        return next;
+    }
+
+    private static int nextIndex(String start, String id, int next) {
+        if (!id.startsWith(start)) {
+            return next;
+        }
+        try {
+            return Math.max(next, Integer.parseInt(id.substring(start.length())) + 1);
+        } catch (NumberFormatException ignored) {
+            return next;
+        }
+    }
+
+    public void close() {
+        if (sweeper != null) {
+            sweeper.cancel();
+            sweeper = null;
+        }
+
+        for (PendingPlacement p : pending.values()) {
+            if (p.session == null || p.session.placements.isEmpty()) {
+                continue;
+            }
+            dump(p.session.placements);
+            release(p.session.placements);
+        }
+        pending.clear();
     }
 
     private static class PendingPlacement {
+        final UUID player;
         final String id;
         final String command;
+        final BuildSession session;
+        TimingWheel.Timeout<PendingPlacement> timeout;
 
-        PendingPlacement(String id, String command) {
+        PendingPlacement(UUID player, String id, String command, BuildSession session) {
+            this.player = player;
             this.id = id;
             this.command = command;
+            this.session = session;
+        }
+    }
+
+    private static class BuildSession {
+        final String prefix;
+        final List<TreasureDefinition> placements = new ArrayList<>();
+        int nextIndex;
+
+        BuildSession(String prefix, int nextIndex) {
+            this.prefix = prefix;
+            this.nextIndex = nextIndex;
+        }
+
+        String idAt(String world, int x, int y, int z) {
+            for (TreasureDefinition d : placements) {
+                if (d.getX() == x && d.getY() == y && d.getZ() == z && d.getWorld().equals(world)) {
+                    return d.getId();
+                }
+            }
+            return null;
         }
     }
 }
@@ -0,0 +1,178 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.model.TreasureRecord;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+public class TreasureSnapshot {
+
+    private static final int MAGIC = 0x54485331;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 8 + 4;
+    private static final long WRITE_DELAY_MILLIS = 1000L;
+
+    private final TreasureHunt plugin;
+    private final TreasureManager treasureManager;
+    private final boolean enabled;
+    private final Path path;
+    private final AtomicBoolean writeScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService writer;
+
+    public TreasureSnapshot(TreasureHunt plugin, TreasureManager treasureManager) {
+        this.plugin = plugin;
+        this.treasureManager = treasureManager;
+        this.enabled = plugin.getConfigManager().getBooleanOrDefault(ConfigFile.CONFIG, "snapshot.enabled", true);
+        this.path = plugin.getDataFolder().toPath().resolve(
+                plugin.getConfigManager().getStringOrDefault(ConfigFile.CONFIG, "snapshot.file", "treasures.snapshot"));
+
+        if (!enabled) {
+            this.writer = null;
+            return;
+        }
+
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TH-Snapshot");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public Contents load() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + 8) {
+                throw new IOException("Snapshot is truncated");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - 8));
+            if (crc.getValue() != buffer.getLong((int) size - 8)) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format");
+            }
+
+            long watermark = buffer.getLong();
+            long writtenAt = buffer.getLong();
+            int count = buffer.getInt();
+            List<TreasureRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                int key = buffer.getInt();
+                String id = readString(buffer);
+                String world = readString(buffer);
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+                int z = buffer.getInt();
+                String command = readString(buffer);
+                long updatedAt = buffer.getLong();
+                records.add(new TreasureRecord(key, id, world, x, y, z, command, updatedAt));
+            }
+            return new Contents(records, watermark, writtenAt);
+        } catch (IOException | RuntimeException ex) {
+            plugin.getLogger().log(Level.WARNING, "Ignoring unreadable treasure snapshot " + path.getFileName(), ex);
+            return null;
+        }
+    }
+
+    public void scheduleWrite() {
+        if (!enabled || !writeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+
+        writer.schedule(() -> {
+            writeScheduled.set(false);
+            write();
+        }, WRITE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void write() {
+        long watermark = treasureManager.getSyncWatermark();
+        List<TreasureRecord> records = new ArrayList<>(treasureManager.getCachedTreasures().values());
+        Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+                CRC32 crc = new CRC32();
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(file, crc), 64 * 1024));
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(watermark);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(records.size());
+                for (TreasureRecord r : records) {
+                    out.writeInt(r.getKey());
+                    writeString(out, r.getId());
+                    writeString(out, r.getWorld());
+                    out.writeInt(r.getX());
+                    out.writeInt(r.getY());
+                    out.writeInt(r.getZ());
+                    writeString(out, r.getCommand());
+                    out.writeLong(r.getUpdatedAt());
+                }
+                out.flush();
+
+                file.write(ByteBuffer.allocate(8).putLong(crc.getValue()).array());
+                file.getFD().sync();
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Failed to write treasure snapshot", ex);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+
+        writer.shutdownNow();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+    }
+
+    public record Contents(List<TreasureRecord> records, long watermark, long writtenAt) {
+    }
+}
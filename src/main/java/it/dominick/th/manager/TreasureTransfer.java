@@ -0,0 +1,390 @@
+package it.dominick.th.manager;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.model.TreasureDefinition;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.repository.TreasureStorage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+public class TreasureTransfer {
+
+    private static final String[] CSV_HEADER = {"id", "world", "x", "y", "z", "command"};
+
+    private final TreasureHunt plugin;
+    private final TreasureManager treasureManager;
+    private final TreasureStorage treasureRepo;
+    private final int batchSize;
+
+    public TreasureTransfer(TreasureHunt plugin, TreasureManager treasureManager, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureManager = treasureManager;
+        this.treasureRepo = treasureRepo;
+        this.batchSize = Math.min(5000, Math.max(1, plugin.getConfigManager().getIntOrDefault(ConfigFile.CONFIG, "transfer.batchSize", 1000)));
+    }
+
+    public CompletableFuture<Integer> importFile(String fileName) {
+        Path path;
+        Format format;
+        try {
+            path = resolve(fileName);
+            format = Format.of(path);
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        DefinitionReader reader = format == Format.CSV ? new CsvDefinitionReader(path) : new JsonDefinitionReader(path);
+        return treasureRepo.insertTreasures(reader, batchSize)
+                .whenComplete((count, ex) -> reader.close())
+                .thenCompose(count -> {
+                    if (count <= 0) {
+                        return CompletableFuture.completedFuture(count);
+                    }
+                    return treasureManager.refreshCache().thenApply(v -> count);
+                });
+    }
+
+    public CompletableFuture<Integer> exportFile(String fileName) {
+        Path path;
+        Format format;
+        try {
+            path = resolve(fileName);
+            format = Format.of(path);
+        } catch (IllegalArgumentException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        List<TreasureRecord> records = new ArrayList<>(treasureManager.getCachedTreasures().values());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Files.createDirectories(path.getParent());
+                Path tmp = path.resolveSibling(path.getFileName() + ".tmp");
+                try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                    if (format == Format.CSV) {
+                        writeCsv(writer, records);
+                    } else {
+                        writeJson(writer, records);
+                    }
+                }
+                Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                return records.size();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    public Path dumpDefinitions(String name, List<TreasureDefinition> definitions) throws IOException {
+        Path path = resolve("unsaved/" + name + "-" + System.currentTimeMillis() + ".csv");
+        Files.createDirectories(path.getParent());
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", CSV_HEADER));
+            writer.write('\n');
+            for (TreasureDefinition d : definitions) {
+                writeCsvRow(writer, d.getId(), d.getWorld(), d.getX(), d.getY(), d.getZ(), d.getCommand());
+            }
+        }
+        return path;
+    }
+
+    private Path resolve(String fileName) {
+        Path folder = plugin.getDataFolder().toPath().toAbsolutePath().normalize();
+        Path path = folder.resolve(fileName).normalize();
+        if (!path.startsWith(folder) || path.equals(folder)) {
+            throw new IllegalArgumentException("File must be inside the plugin folder: " + fileName);
+        }
+        return path;
+    }
+
+    private void writeCsv(Writer writer, List<TreasureRecord> records) throws IOException {
+        writer.write(String.join(",", CSV_HEADER));
+        writer.write('\n');
+        for (TreasureRecord r : records) {
+            writeCsvRow(writer, r.getId(), r.getWorld(), r.getX(), r.getY(), r.getZ(), r.getCommand());
+        }
+    }
+
+    private void writeCsvRow(Writer writer, String id, String world, int x, int y, int z, String command) throws IOException {
+        writer.write(csvField(id));
+        writer.write(',');
+        writer.write(csvField(world));
+        writer.write(',' + String.valueOf(x) + ',' + y + ',' + z + ',');
+        writer.write(csvField(command));
+        writer.write('\n');
+    }
+
+    private void writeJson(Writer writer, List<TreasureRecord> records) throws IOException {
+        try (JsonWriter json = new JsonWriter(writer)) {
+            json.setIndent("  ");
+            json.beginArray();
+            for (TreasureRecord r : records) {
+                json.beginObject();
+                json.name("id").value(r.getId());
+                json.name("world").value(r.getWorld());
+                json.name("x").value(r.getX());
+                json.name("y").value(r.getY());
+                json.name("z").value(r.getZ());
+                json.name("command").value(r.getCommand());
+                json.endObject();
+            }
+            json.endArray();
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static TreasureDefinition definition(String id, String world, String x, String y, String z, String command, String location) {
+        if (id == null || id.isBlank() || id.length() > 128) {
+            throw new IllegalArgumentException("Invalid treasure id at " + location);
+        }
+        if (world == null || world.isBlank()) {
+            throw new IllegalArgumentException("Missing world for " + id + " at " + location);
+        }
+        try {
+            return new TreasureDefinition(id, world, Integer.parseInt(x.trim()), Integer.parseInt(y.trim()), Integer.parseInt(z.trim()),
+                    command != null ? command : "");
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw new IllegalArgumentException("Invalid coordinates for " + id + " at " + location);
+        }
+    }
+
+    private enum Format {
+        CSV,
+        JSON;
+
+        static Format of(Path path) {
+            String name = path.getFileName().toString().toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".json")) {
+                return JSON;
+            }
+            throw new IllegalArgumentException("Unsupported file type, use .csv or .json: " + path.getFileName());
+        }
+    }
+
+    private abstract static class DefinitionReader implements Iterator<TreasureDefinition> {
+        protected final Path path;
+        private TreasureDefinition next;
+        private boolean opened;
+        private boolean done;
+
+        DefinitionReader(Path path) {
+            this.path = path;
+        }
+
+        protected abstract void open() throws IOException;
+
+        protected abstract TreasureDefinition read() throws IOException;
+
+        protected abstract void release() throws IOException;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+
+            try {
+                if (!opened) {
+                    opened = true;
+                    open();
+                }
+                next = read();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+            done = next == null;
+            return !done;
+        }
+
+        @Override
+        public TreasureDefinition next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            TreasureDefinition current = next;
+            next = null;
+            return current;
+        }
+
+        void close() {
+            try {
+                release();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private static class CsvDefinitionReader extends DefinitionReader {
+        private BufferedReader reader;
+        private int line;
+
+        CsvDefinitionReader(Path path) {
+            super(path);
+        }
+
+        @Override
+        protected void open() throws IOException {
+            reader = Files.newBufferedReader(path, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        protected TreasureDefinition read() throws IOException {
+            List<String> fields;
+            while ((fields = readRecord()) != null) {
+                if (fields.size() == 1 && fields.get(0).isBlank()) {
+                    continue;
+                }
+                if (line == 1 && fields.get(0).trim().equalsIgnoreCase(CSV_HEADER[0])) {
+                    continue;
+                }
+                if (fields.size() < 5) {
+                    throw new IllegalArgumentException("Expected id,world,x,y,z,command at line " + line);
+                }
+                return definition(fields.get(0).trim(), fields.get(1).trim(), fields.get(2), fields.get(3), fields.get(4),
+                        fields.size() > 5 ? fields.get(5) : "", "line " + line);
+            }
+            return null;
+        }
+
+        private List<String> readRecord() throws IOException {
+            String text = reader.readLine();
+            if (text == null) {
+                return null;
+            }
+            line++;
+
+            List<String> fields = new ArrayList<>(6);
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            int i = 0;
+            while (true) {
+                if (i == text.length()) {
+                    if (!quoted) {
+                        break;
+                    }
+                    text = reader.readLine();
+                    if (text == null) {
+                        throw new IllegalArgumentException("Unterminated quoted field at line " + line);
+                    }
+                    line++;
+                    field.append('\n');
+                    i = 0;
+                    continue;
+                }
+
+                char c = text.charAt(i++);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i < text.length() && text.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"' && field.isEmpty()) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        @Override
+        protected void release() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+
+    private static class JsonDefinitionReader extends DefinitionReader {
+        private JsonReader reader;
+        private int index;
+
+        JsonDefinitionReader(Path path) {
+            super(path);
+        }
+
+        @Override
+        protected void open() throws IOException {
+            reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8));
+            reader.beginArray();
+        }
+
+        @Override
+        protected TreasureDefinition read() throws IOException {
+            if (!reader.hasNext()) {
+                reader.endArray();
+                return null;
+            }
+
+            index++;
+            String id = null;
+            String world = null;
+            String x = null;
+            String y = null;
+            String z = null;
+            String command = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id" -> id = reader.nextString();
+                    case "world" -> world = reader.nextString();
+                    case "x" -> x = reader.nextString();
+                    case "y" -> y = reader.nextString();
+                    case "z" -> z = reader.nextString();
+                    case "command" -> command = reader.nextString();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            return definition(id, world, x, y, z, command, "entry " + index);
+        }
+
+        @Override
+        protected void release() throws IOException {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+}
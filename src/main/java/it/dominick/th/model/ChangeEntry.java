@@ -0,0 +1,39 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+public class ChangeEntry {
+    private final long id;
+    private final String origin;
+    private final ChangeType type;
+    private final String treasureId;
+    private final int treasureKey;
+    private final UUID player;
+    private final long ageMillis;
+
+    public ChangeEntry(long id, String origin, ChangeType type, String treasureId, int treasureKey, UUID player, long ageMillis) {
+        this.id = id;
+        this.origin = origin;
+        this.type = type;
+        this.treasureId = treasureId;
+        this.treasureKey = treasureKey;
+        this.player = player;
+        this.ageMillis = ageMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEntry{" +
+                "id=" + id +
+                ", origin='" + origin + '\'' +
+                ", type=" + type +
+                ", treasureId='" + treasureId + '\'' +
+                ", treasureKey=" + treasureKey +
+                ", player=" + player +
+                ", ageMillis=" + ageMillis +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+public enum ChangeType {
+    TREASURE_UPSERT(1),
+    TREASURE_DELETE(2),
+    REDEEM_ADD(3),
+    REDEEM_REMOVE(4),
+    TREASURE_BULK(5),
+    REDEEM_RESET(6),
+    COUNTS_REBUILD(7);
+
+    @Getter
+    private final int code;
+
+    ChangeType(int code) {
+        this.code = code;
+    }
+
+    public static ChangeType fromCode(int code) {
+        for (ChangeType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
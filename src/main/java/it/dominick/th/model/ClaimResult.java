@@ -0,0 +1,7 @@
+package it.dominick.th.model;
+
+public enum ClaimResult {
+    CLAIMED,
+    ALREADY_CLAIMED,
+    FAILED
+}
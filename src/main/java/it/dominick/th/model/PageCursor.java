@@ -0,0 +1,22 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+@Getter
+public class PageCursor {
+    private final long redeemedAt;
+    private final long id;
+
+    public PageCursor(long redeemedAt, long id) {
+        this.redeemedAt = redeemedAt;
+        this.id = id;
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor{" +
+                "redeemedAt=" + redeemedAt +
+                ", id=" + id +
+                '}';
+    }
+}
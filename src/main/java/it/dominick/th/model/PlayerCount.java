@@ -0,0 +1,24 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+public class PlayerCount {
+    private final UUID player;
+    private final int found;
+
+    public PlayerCount(UUID player, int found) {
+        this.player = player;
+        this.found = found;
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerCount{" +
+                "player=" + player +
+                ", found=" + found +
+                '}';
+    }
+}
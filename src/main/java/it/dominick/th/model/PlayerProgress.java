@@ -0,0 +1,52 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+@Getter
+public class PlayerProgress {
+    private volatile int found;
+    private volatile int total;
+    private volatile int percent;
+    private volatile String nextHunt = "";
+    private volatile String foundText = "0";
+    private volatile String totalText = "0";
+    private volatile String percentText = "0";
+
+    public synchronized void update(int found, int total, String nextHunt) {
+        int clamped = Math.min(found, total);
+        int percent = total > 0 ? (int) (clamped * 100L / total) : 0;
+        if (clamped != this.found) {
+            this.foundText = Integer.toString(clamped);
+            this.found = clamped;
+        }
+        if (total != this.total) {
+            this.totalText = Integer.toString(total);
+            this.total = total;
+        }
+        if (percent != this.percent) {
+            this.percentText = Integer.toString(percent);
+            this.percent = percent;
+        }
+        this.nextHunt = nextHunt;
+    }
+
+    public String getPlaceholder(String name) {
+        return switch (name) {
+            case "found" -> foundText;
+            case "total" -> totalText;
+            case "percent" -> percentText;
+            case "next" -> nextHunt;
+            default -> null;
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerProgress{" +
+                "found=" + found +
+                ", total=" + total +
+                ", percent=" + percent +
+                ", nextHunt='" + nextHunt + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,44 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Getter
+public class RedemptionPage {
+    private final List<RedemptionRecord> entries;
+    private final PageCursor next;
+    private final boolean hasMore;
+    private final Map<UUID, String> names;
+
+    public RedemptionPage(List<RedemptionRecord> entries, PageCursor next, boolean hasMore) {
+        this(entries, next, hasMore, Collections.emptyMap());
+    }
+
+    public RedemptionPage(List<RedemptionRecord> entries, PageCursor next, boolean hasMore, Map<UUID, String> names) {
+        this.entries = entries;
+        this.next = next;
+        this.hasMore = hasMore;
+        this.names = names;
+    }
+
+    public static RedemptionPage empty() {
+        return new RedemptionPage(Collections.emptyList(), null, false);
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "RedemptionPage{" +
+                "entries=" + entries.size() +
+                ", next=" + next +
+                ", hasMore=" + hasMore +
+                '}';
+    }
+}
@@ -0,0 +1,27 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+import java.util.UUID;
+
+@Getter
+public class RedemptionRecord {
+    private final UUID player;
+    private final int treasureKey;
+    private final long redeemedAt;
+
+    public RedemptionRecord(UUID player, int treasureKey, long redeemedAt) {
+        this.player = player;
+        this.treasureKey = treasureKey;
+        this.redeemedAt = redeemedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "RedemptionRecord{" +
+                "player=" + player +
+                ", treasureKey=" + treasureKey +
+                ", redeemedAt=" + redeemedAt +
+                '}';
+    }
+}
@@ -0,0 +1,156 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+import org.bukkit.Material;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+@Getter
+public class RewardTemplate {
+
+    public enum Action {
+        CONSOLE,
+        ITEM,
+        XP,
+        MESSAGE,
+        NONE,
+        INVALID
+    }
+
+    private static final String PLAYER = "%player%";
+    private static final String UUID_PLACEHOLDER = "%uuid%";
+
+    private final Action action;
+    private final String source;
+    private final String[] segments;
+    private final boolean[] playerSlots;
+    private final Material material;
+    private final int amount;
+
+    private RewardTemplate(Action action, String source, String[] segments, boolean[] playerSlots, Material material, int amount) {
+        this.action = action;
+        this.source = source;
+        this.segments = segments;
+        this.playerSlots = playerSlots;
+        this.material = material;
+        this.amount = amount;
+    }
+
+    public static RewardTemplate compile(String command, String id, String world, int x, int y, int z) {
+        if (command == null || command.isBlank()) {
+            return new RewardTemplate(Action.NONE, command, new String[0], new boolean[0], null, 0);
+        }
+
+        String body = command.trim()
+                .replace("%id%", id)
+                .replace("%world%", world)
+                .replace("%x%", String.valueOf(x))
+                .replace("%y%", String.valueOf(y))
+                .replace("%z%", String.valueOf(z));
+
+        Action action = Action.CONSOLE;
+        if (body.startsWith("[")) {
+            int end = body.indexOf(']');
+            if (end > 0) {
+                String tag = body.substring(1, end).toLowerCase(Locale.ROOT);
+                String rest = body.substring(end + 1).trim();
+                switch (tag) {
+                    case "console" -> body = rest;
+                    case "message" -> {
+                        action = Action.MESSAGE;
+                        body = rest;
+                    }
+                    case "xp" -> {
+                        return compileXp(command, rest);
+                    }
+                    case "item" -> {
+                        return compileItem(command, rest);
+                    }
+                    default -> {
+                    }
+                }
+            }
+        }
+
+        if (action == Action.CONSOLE && body.startsWith("/")) {
+            body = body.substring(1);
+        }
+
+        List<String> segments = new ArrayList<>();
+        List<Boolean> slots = new ArrayList<>();
+        int from = 0;
+        while (from < body.length()) {
+            int playerAt = body.indexOf(PLAYER, from);
+            int uuidAt = body.indexOf(UUID_PLACEHOLDER, from);
+            int next = playerAt < 0 ? uuidAt : (uuidAt < 0 ? playerAt : Math.min(playerAt, uuidAt));
+            if (next < 0) {
+                segments.add(body.substring(from));
+                slots.add(null);
+                break;
+            }
+
+            if (next > from) {
+                segments.add(body.substring(from, next));
+                slots.add(null);
+            }
+
+            boolean isPlayer = next == playerAt;
+            segments.add(null);
+            slots.add(isPlayer);
+            from = next + (isPlayer ? PLAYER.length() : UUID_PLACEHOLDER.length());
+        }
+
+        boolean[] playerSlots = new boolean[slots.size()];
+        for (int i = 0; i < playerSlots.length; i++) {
+            playerSlots[i] = Boolean.TRUE.equals(slots.get(i));
+        }
+
+        return new RewardTemplate(action, command, segments.toArray(new String[0]), playerSlots, null, 0);
+    }
+
+    private static RewardTemplate compileXp(String source, String rest) {
+        try {
+            int amount = Integer.parseInt(rest.trim());
+            return new RewardTemplate(Action.XP, source, new String[0], new boolean[0], null, amount);
+        } catch (NumberFormatException ex) {
+            return new RewardTemplate(Action.INVALID, source, new String[0], new boolean[0], null, 0);
+        }
+    }
+
+    private static RewardTemplate compileItem(String source, String rest) {
+        String[] parts = rest.trim().split("\\s+");
+        Material material = parts.length > 0 ? Material.matchMaterial(parts[0]) : null;
+        if (material == null || !material.isItem()) {
+            return new RewardTemplate(Action.INVALID, source, new String[0], new boolean[0], null, 0);
+        }
+
+        int amount = 1;
+        if (parts.length > 1) {
+            try {
+                amount = Math.max(1, Integer.parseInt(parts[1]));
+            } catch (NumberFormatException ex) {
+                return new RewardTemplate(Action.INVALID, source, new String[0], new boolean[0], null, 0);
+            }
+        }
+
+        return new RewardTemplate(Action.ITEM, source, new String[0], new boolean[0], material, amount);
+    }
+
+    public String render(String playerName, UUID playerId) {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            if (segment != null) {
+                sb.append(segment);
+            } else if (playerSlots[i]) {
+                sb.append(playerName);
+            } else {
+                sb.append(playerId);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package it.dominick.th.model;
+
+import lombok.Getter;
+
+@Getter
+public class Season {
+    private final int id;
+    private final String name;
+    private final long startedAt;
+    private final long closedAt;
+    private final long archivedAt;
+
+    public Season(int id, String name, long startedAt, long closedAt, long archivedAt) {
+        this.id = id;
+        this.name = name;
+        this.startedAt = startedAt;
+        this.closedAt = closedAt;
+        this.archivedAt = archivedAt;
+    }
+
+    public boolean isOpen() {
+        return closedAt == 0;
+    }
+
+    public boolean isArchived() {
+        return archivedAt != 0;
+    }
+
+    @Override
+    public String toString() {
+        return "Season{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", startedAt=" + startedAt +
+                ", closedAt=" + closedAt +
+                ", archivedAt=" + archivedAt +
+                '}';
+    }
+}
@@ -4,31 +4,39 @@ import lombok.Getter;
 
 @Getter
 public class TreasureRecord {
+    private final int key;
     private final String id;
     private final String world;
     private final int x;
     private final int y;
     private final int z;
     private final String command;
+    private final long updatedAt;
+    private final RewardTemplate reward;
 
-    public TreasureRecord(String id, String world, int x, int y, int z, String command) {
+    public TreasureRecord(int key, String id, String world, int x, int y, int z, String command, long updatedAt) {
+        this.key = key;
         this.id = id;
         this.world = world;
         this.x = x;
         this.y = y;
         this.z = z;
         this.command = command;
+        this.updatedAt = updatedAt;
+        this.reward = RewardTemplate.compile(command, id, world, x, y, z);
     }
 
     @Override
     public String toString() {
         return "TreasureRecord{" +
-                "id='" + id + '\'' +
+                "key=" + key +
+                ", id='" + id + '\'' +
                 ", world='" + world + '\'' +
                 ", x=" + x +
                 ", y=" + y +
                 ", z=" + z +
                 ", command='" + command + '\'' +
+                ", updatedAt=" + updatedAt +
                 '}';
     }
 }
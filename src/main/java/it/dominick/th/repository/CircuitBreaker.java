@@ -0,0 +1,123 @@
+package it.dominick.th.repository;
+
+import it.dominick.th.TreasureHunt;
+import lombok.Getter;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Level;
+
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final TreasureHunt plugin;
+    @Getter
+    private final boolean enabled;
+    private final int failureThreshold;
+    private final long probeIntervalMillis;
+    private final BooleanSupplier probe;
+    private final AtomicInteger failures = new AtomicInteger();
+    private final List<Runnable> recoveryListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService prober;
+
+    @Getter
+    private volatile State state = State.CLOSED;
+    @Getter
+    private volatile long openedAt;
+    @Getter
+    private volatile String lastError;
+
+    public CircuitBreaker(TreasureHunt plugin, boolean enabled, int failureThreshold, long probeIntervalMillis, BooleanSupplier probe) {
+        this.plugin = plugin;
+        this.enabled = enabled;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.probeIntervalMillis = Math.max(100L, probeIntervalMillis);
+        this.probe = probe;
+
+        if (!enabled) {
+            this.prober = null;
+            return;
+        }
+
+        this.prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TH-DB-Probe");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public boolean allowRequest() {
+        return state == State.CLOSED;
+    }
+
+    public void onRecovery(Runnable listener) {
+        recoveryListeners.add(listener);
+    }
+
+    public void recordSuccess() {
+        failures.set(0);
+    }
+
+    public void recordFailure(SQLException ex) {
+        lastError = ex.getMessage();
+        if (!enabled || failures.incrementAndGet() < failureThreshold) {
+            return;
+        }
+
+        synchronized (this) {
+            if (state != State.CLOSED) {
+                return;
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+
+        plugin.getLogger().severe("Database unreachable after " + failureThreshold + " failed connections, switching to degraded mode: " + lastError);
+        prober.schedule(this::probe, probeIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void probe() {
+        state = State.HALF_OPEN;
+        boolean healthy;
+        try {
+            healthy = probe.getAsBoolean();
+        } catch (RuntimeException ex) {
+            lastError = ex.getMessage();
+            healthy = false;
+        }
+
+        if (!healthy) {
+            state = State.OPEN;
+            prober.schedule(this::probe, probeIntervalMillis, TimeUnit.MILLISECONDS);
+            return;
+        }
+
+        failures.set(0);
+        state = State.CLOSED;
+        plugin.getLogger().info("Database reachable again after " + (System.currentTimeMillis() - openedAt) / 1000 + "s, leaving degraded mode");
+        for (Runnable listener : recoveryListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Database recovery listener failed", ex);
+            }
+        }
+    }
+
+    public void close() {
+        if (prober != null) {
+            prober.shutdownNow();
+        }
+    }
+}
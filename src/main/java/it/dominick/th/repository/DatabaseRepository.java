@@ -7,9 +7,10 @@ import it.dominick.th.config.ConfigFile;
 import it.dominick.th.config.ConfigManager;
 import lombok.Getter;
 
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 import java.util.logging.Level;
@@ -19,72 +20,278 @@ public class DatabaseRepository {
     private final TreasureHunt plugin;
 
     @Getter
-    private final HikariDataSource dataSource;
-    private final ExecutorService executor;
+    private final StorageType storageType;
+    @Getter
+    private final boolean virtualThreads;
+    @Getter
+    private final CircuitBreaker circuitBreaker;
+    private final Pool main;
+    private final Pool claims;
+    private final Pool reads;
 
     public DatabaseRepository() {
         plugin = TreasureHunt.getInstance();
         ConfigManager config = plugin.getConfigManager();
 
-        String host = config.getString(ConfigFile.CONFIG, "database.host");
-        int port = config.getIntOrDefault(ConfigFile.CONFIG, "database.port", 3306);
-        String database = config.getString(ConfigFile.CONFIG, "database.name");
-        String user = config.getString(ConfigFile.CONFIG, "database.user");
-        String pass = config.getString(ConfigFile.CONFIG, "database.password");
-        boolean useSsl = config.getBoolean(ConfigFile.CONFIG, "database.useSSL");
+        this.storageType = StorageType.fromConfig(config.getString(ConfigFile.CONFIG, "database.type"));
         int poolSize = config.getIntOrDefault(ConfigFile.CONFIG, "database.maximumPoolSize", 4);
-
-        String jdbcUrl = String.format("jdbc:mysql://%s:%d/%s?useSSL=%s&serverTimezone=UTC", host, port, database, useSsl);
+        String mode = config.getStringOrDefault(ConfigFile.CONFIG, "database.executor.mode", "fixed");
+        this.virtualThreads = mode.toLowerCase(Locale.ROOT).equals("virtual");
+        int maxQueueDepth = Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "database.executor.maxQueueDepth", 1000));
+        long permitWaitMillis = Math.max(1L, config.getLongOrDefault(ConfigFile.CONFIG, "database.executor.permitWaitMillis", 5000L));
+        int claimPoolSize = config.getIntOrDefault(ConfigFile.CONFIG, "database.claimPool.size", 2);
+        boolean readPoolEnabled = config.getBooleanOrDefault(ConfigFile.CONFIG, "database.readPool.enabled", false);
+        int readPoolSize = config.getIntOrDefault(ConfigFile.CONFIG, "database.readPool.size", 2);
 
         try {
             HikariConfig cfg = new HikariConfig();
-            cfg.setJdbcUrl(jdbcUrl);
-            cfg.setUsername(user);
-            cfg.setPassword(pass);
+            storageType.configure(cfg, config, plugin.getDataFolder());
             cfg.setMaximumPoolSize(Math.max(1, poolSize));
             cfg.setPoolName("TH-Hikari-Pool");
-            cfg.addDataSourceProperty("cachePrepStmts", "true");
-            cfg.addDataSourceProperty("prepStmtCacheSize", "250");
-            cfg.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            cfg.setInitializationFailTimeout(-1);
+            this.main = new Pool("Main", new HikariDataSource(cfg), virtualThreads, maxQueueDepth, permitWaitMillis, true);
 
-            this.dataSource = new HikariDataSource(cfg);
+            if (claimPoolSize > 0) {
+                HikariConfig claimCfg = new HikariConfig();
+                storageType.configure(claimCfg, config, plugin.getDataFolder());
+                claimCfg.setMaximumPoolSize(claimPoolSize);
+                claimCfg.setPoolName("TH-Hikari-Claims");
+                claimCfg.setInitializationFailTimeout(-1);
+                this.claims = new Pool("Claims", new HikariDataSource(claimCfg), virtualThreads, maxQueueDepth, permitWaitMillis, true);
+            } else {
+                this.claims = main;
+            }
 
-            AtomicInteger counter = new AtomicInteger(1);
-            this.executor = Executors.newFixedThreadPool(Math.max(1, poolSize), r -> {
-                Thread t = new Thread(r, "TH-DB-Worker-" + counter.getAndIncrement());
-                t.setDaemon(true);
-                return t;
-            });
+            if (readPoolEnabled) {
+                HikariConfig readCfg = new HikariConfig();
+                storageType.configureReplica(readCfg, config, plugin.getDataFolder());
+                readCfg.setMaximumPoolSize(Math.max(1, readPoolSize));
+                readCfg.setPoolName("TH-Hikari-Reads");
+                readCfg.setInitializationFailTimeout(-1);
+                this.reads = new Pool("Reads", new HikariDataSource(readCfg), virtualThreads, maxQueueDepth, permitWaitMillis, false);
+            } else {
+                this.reads = main;
+            }
 
-            plugin.getLogger().info("Database initialized successfully");
+            this.circuitBreaker = new CircuitBreaker(plugin,
+                    config.getBooleanOrDefault(ConfigFile.CONFIG, "database.circuitBreaker.enabled", true),
+                    config.getIntOrDefault(ConfigFile.CONFIG, "database.circuitBreaker.failureThreshold", 3),
+                    config.getLongOrDefault(ConfigFile.CONFIG, "database.circuitBreaker.probeIntervalMillis", 5000L),
+                    this::probe);
+
+            plugin.getLogger().info("Database initialized successfully (" + storageType + ", " + (virtualThreads ? "virtual" : "fixed") + " executor, "
+                    + (claims != main ? claimPoolSize + " reserved claim connections" : "shared claim pool") + ", "
+                    + (reads != main ? "separate read pool" : "shared read pool") + ")");
         } catch (Exception ex) {
             plugin.getLogger().log(Level.SEVERE, "Failed to initialize Database", ex);
+            close();
             throw ex;
         }
     }
 
+    public HikariDataSource getDataSource() {
+        return main.dataSource;
+    }
+
     public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
-        return CompletableFuture.supplyAsync(supplier, executor);
+        return supplyAsync(QueryIntent.WRITE, supplier);
+    }
+
+    public <T> CompletableFuture<T> supplyAsync(QueryIntent intent, Supplier<T> supplier) {
+        Pool pool = pool(intent);
+        if (pool.guarded && !circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Database unavailable, circuit breaker is " + circuitBreaker.getState()));
+        }
+        return pool.supplyAsync(supplier);
     }
 
     public CompletableFuture<Void> runAsync(Runnable runnable) {
-        return CompletableFuture.runAsync(runnable, executor);
+        return supplyAsync(() -> {
+            runnable.run();
+            return null;
+        });
     }
 
-    public void close() {
+    public Connection getConnection() throws SQLException {
+        return getConnection(QueryIntent.WRITE);
+    }
+
+    public Connection getConnection(QueryIntent intent) throws SQLException {
+        Pool pool = pool(intent);
+        if (!pool.guarded) {
+            return pool.dataSource.getConnection();
+        }
+
         try {
-            if (dataSource != null && !dataSource.isClosed()) {
-                dataSource.close();
+            Connection conn = pool.dataSource.getConnection();
+            circuitBreaker.recordSuccess();
+            return conn;
+        } catch (SQLException ex) {
+            circuitBreaker.recordFailure(ex);
+            throw ex;
+        }
+    }
+
+    public boolean isAvailable() {
+        return circuitBreaker.allowRequest();
+    }
+
+    private boolean probe() {
+        try (Connection conn = main.dataSource.getConnection()) {
+            return conn.isValid(5);
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    private Pool pool(QueryIntent intent) {
+        return switch (intent) {
+            case WRITE -> main;
+            case CLAIM -> claims;
+            case READ -> reads;
+        };
+    }
+
+    public int getQueueDepth() {
+        return getQueueDepth(QueryIntent.WRITE);
+    }
+
+    public int getQueueDepth(QueryIntent intent) {
+        return pool(intent).getQueueDepth();
+    }
+
+    public int getActiveCount() {
+        return getActiveCount(QueryIntent.WRITE);
+    }
+
+    public int getActiveCount(QueryIntent intent) {
+        return pool(intent).getActiveCount();
+    }
+
+    public boolean isSeparate(QueryIntent intent) {
+        return pool(intent) != main;
+    }
+
+    public void close() {
+        if (circuitBreaker != null) {
+            circuitBreaker.close();
+        }
+        if (reads != null && reads != main) {
+            reads.close(plugin);
+        }
+        if (claims != null && claims != main) {
+            claims.close(plugin);
+        }
+        if (main != null) {
+            main.close(plugin);
+        }
+    }
+
+    private static final class Pool {
+        final String name;
+        final HikariDataSource dataSource;
+        final ExecutorService executor;
+        final Semaphore permits;
+        final AtomicInteger waiting = new AtomicInteger();
+        final int maxQueueDepth;
+        final long permitWaitMillis;
+        final boolean guarded;
+
+        Pool(String name, HikariDataSource dataSource, boolean virtualThreads, int maxQueueDepth, long permitWaitMillis, boolean guarded) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.maxQueueDepth = maxQueueDepth;
+            this.permitWaitMillis = permitWaitMillis;
+            this.guarded = guarded;
+
+            int size = Math.max(1, dataSource.getMaximumPoolSize());
+            if (virtualThreads) {
+                this.permits = new Semaphore(size, true);
+                this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("TH-DB-" + name + "-Virtual-", 1).factory());
+            } else {
+                AtomicInteger counter = new AtomicInteger(1);
+                this.permits = null;
+                this.executor = new ThreadPoolExecutor(size, size,
+                        0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(maxQueueDepth), r -> {
+                    Thread t = new Thread(r, "TH-DB-" + name + "-" + counter.getAndIncrement());
+                    t.setDaemon(true);
+                    return t;
+                });
             }
-        } catch (Exception ex) {
-            plugin.getLogger().log(Level.WARNING, "Error closing HikariDataSource", ex);
         }
 
-        try {
-            executor.shutdownNow();
-        } catch (Exception ex) {
-            plugin.getLogger().log(Level.WARNING, "Error shutting down DB executor", ex);
+        <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier) {
+            try {
+                if (permits == null) {
+                    return CompletableFuture.supplyAsync(supplier, executor);
+                }
+
+                if (waiting.incrementAndGet() > maxQueueDepth) {
+                    waiting.decrementAndGet();
+                    return CompletableFuture.failedFuture(new RejectedExecutionException(name + " database queue is full (" + maxQueueDepth + ")"));
+                }
+
+                try {
+                    return CompletableFuture.supplyAsync(() -> withPermit(supplier), executor);
+                } catch (RejectedExecutionException ex) {
+                    waiting.decrementAndGet();
+                    throw ex;
+                }
+            } catch (RejectedExecutionException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
+
+        private <T> T withPermit(Supplier<T> supplier) {
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(permitWaitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(ex);
+            } finally {
+                waiting.decrementAndGet();
+            }
+
+            if (!acquired) {
+                throw new CompletionException(new TimeoutException("Timed out after " + permitWaitMillis + "ms waiting for a " + name + " database permit"));
+            }
+
+            try {
+                return supplier.get();
+            } finally {
+                permits.release();
+            }
+        }
+
+        int getQueueDepth() {
+            if (permits != null) {
+                return waiting.get();
+            }
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+
+        int getActiveCount() {
+            if (permits != null) {
+                return Math.max(0, dataSource.getMaximumPoolSize() - permits.availablePermits());
+            }
+            return ((ThreadPoolExecutor) executor).getActiveCount();
+        }
+
+        void close(TreasureHunt plugin) {
+            try {
+                if (!dataSource.isClosed()) {
+                    dataSource.close();
+                }
+            } catch (Exception ex) {
+                plugin.getLogger().log(Level.WARNING, "Error closing " + name + " HikariDataSource", ex);
+            }
+
+            try {
+                executor.shutdownNow();
+            } catch (Exception ex) {
+                plugin.getLogger().log(Level.WARNING, "Error shutting down " + name + " DB executor", ex);
+            }
         }
     }
 }
-
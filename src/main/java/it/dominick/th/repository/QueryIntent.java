@@ -0,0 +1,7 @@
+package it.dominick.th.repository;
+
+public enum QueryIntent {
+    WRITE,
+    CLAIM,
+    READ
+}
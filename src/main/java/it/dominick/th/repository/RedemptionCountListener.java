@@ -0,0 +1,12 @@
+package it.dominick.th.repository;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+
+public interface RedemptionCountListener {
+
+    void countsChanged(Map<UUID, Integer> players, Map<Integer, Integer> treasures);
+
+    void countsStale(Collection<UUID> players, Collection<Integer> treasureKeys);
+}
@@ -0,0 +1,262 @@
+package it.dominick.th.repository;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.RedemptionRecord;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+public class RedemptionJournal {
+
+    private static final int RECORD_BYTES = 36;
+    private static final int PAYLOAD_BYTES = RECORD_BYTES - 8;
+
+    private final TreasureHunt plugin;
+    private final TreasureStorage treasureRepo;
+    @Getter
+    private final boolean enabled;
+    private final Path path;
+    private final int replayBatchSize;
+    private final ExecutorService writer;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    private FileChannel channel;
+    private volatile long size;
+    private volatile long replayed;
+
+    public RedemptionJournal(TreasureHunt plugin, TreasureStorage treasureRepo) {
+        this.plugin = plugin;
+        this.treasureRepo = treasureRepo;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = config.getBooleanOrDefault(ConfigFile.CONFIG, "database.journal.enabled", true);
+        this.path = plugin.getDataFolder().toPath().resolve(config.getStringOrDefault(ConfigFile.CONFIG, "database.journal.file", "redemptions.journal"));
+        this.replayBatchSize = Math.min(5000, Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "database.journal.replayBatchSize", 500)));
+
+        if (!enabled) {
+            this.writer = null;
+            return;
+        }
+
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "TH-Journal");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void open() {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(path.getParent());
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long valid = 0;
+            ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+            while (channel.read(buffer.clear(), valid) == RECORD_BYTES && decode(buffer.flip()) != null) {
+                valid += RECORD_BYTES;
+            }
+            if (valid != channel.size()) {
+                plugin.getLogger().warning("Discarding " + (channel.size() - valid) + " trailing bytes of a torn journal write");
+                channel.truncate(valid);
+                channel.force(true);
+            }
+            size = valid;
+            if (valid > 0) {
+                plugin.getLogger().info("Redemption journal holds " + getDepth() + " claims waiting for replay");
+            }
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to open redemption journal " + path.getFileName(), ex);
+            channel = null;
+        }
+    }
+
+    public CompletableFuture<Boolean> append(List<RedemptionRecord> records) {
+        if (!enabled || channel == null || records.isEmpty()) {
+            return CompletableFuture.completedFuture(false);
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            ByteBuffer buffer = ByteBuffer.allocate(records.size() * RECORD_BYTES);
+            for (RedemptionRecord r : records) {
+                encode(buffer, r);
+            }
+            try {
+                long offset = size;
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    offset += channel.write(buffer, offset);
+                }
+                channel.force(false);
+                size = offset;
+                return true;
+            } catch (IOException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to journal " + records.size() + " redeemed records", ex);
+                return false;
+            }
+        }, writer);
+    }
+
+    public CompletableFuture<Boolean> append(RedemptionRecord record) {
+        return append(List.of(record));
+    }
+
+    public long getDepth() {
+        return (size - replayed) / RECORD_BYTES;
+    }
+
+    public boolean isReplaying() {
+        return replaying.get();
+    }
+
+    public CompletableFuture<Long> replay() {
+        if (!enabled || channel == null || getDepth() == 0 || !replaying.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(0L);
+        }
+
+        plugin.getLogger().info("Replaying " + getDepth() + " journaled claims");
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        replayBatch(result, 0L);
+        return result.whenComplete((count, ex) -> {
+            replaying.set(false);
+            if (ex != null) {
+                plugin.getLogger().log(Level.WARNING, "Journal replay paused with " + getDepth() + " claims left", ex);
+            } else {
+                plugin.getLogger().info("Replayed " + count + " journaled claims");
+            }
+        });
+    }
+
+    private void replayBatch(CompletableFuture<Long> result, long replayedCount) {
+        CompletableFuture.supplyAsync(this::readBatch, writer)
+                .thenCompose(batch -> {
+                    if (batch.isEmpty()) {
+                        return CompletableFuture.completedFuture(0);
+                    }
+                    return treasureRepo.addRedeemedBatch(batch).thenCompose(written -> {
+                        if (written < 0) {
+                            return CompletableFuture.failedFuture(new IllegalStateException("Database rejected journal batch"));
+                        }
+                        return CompletableFuture.supplyAsync(() -> advance(batch.size()), writer);
+                    });
+                })
+                .whenComplete((count, ex) -> {
+                    if (ex != null) {
+                        result.completeExceptionally(ex);
+                    } else if (count == 0) {
+                        result.complete(replayedCount);
+                    } else {
+                        replayBatch(result, replayedCount + count);
+                    }
+                });
+    }
+
+    private List<RedemptionRecord> readBatch() {
+        int count = (int) Math.min(replayBatchSize, getDepth());
+        List<RedemptionRecord> batch = new ArrayList<>(count);
+        if (count == 0) {
+            return batch;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(count * RECORD_BYTES);
+        try {
+            long offset = replayed;
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, offset);
+                if (read < 0) {
+                    break;
+                }
+                offset += read;
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to read redemption journal", ex);
+        }
+
+        buffer.flip();
+        while (buffer.remaining() >= RECORD_BYTES) {
+            RedemptionRecord record = decode(buffer);
+            if (record == null) {
+                throw new IllegalStateException("Corrupt redemption journal record at " + (replayed + (long) batch.size() * RECORD_BYTES));
+            }
+            batch.add(record);
+        }
+        return batch;
+    }
+
+    private int advance(int count) {
+        replayed += (long) count * RECORD_BYTES;
+        if (replayed == size) {
+            try {
+                channel.truncate(0);
+                channel.force(true);
+                size = 0;
+                replayed = 0;
+            } catch (IOException ex) {
+                plugin.getLogger().log(Level.WARNING, "Failed to truncate replayed redemption journal", ex);
+            }
+        }
+        return count;
+    }
+
+    private static void encode(ByteBuffer buffer, RedemptionRecord record) {
+        int start = buffer.position();
+        buffer.putLong(record.getPlayer().getMostSignificantBits());
+        buffer.putLong(record.getPlayer().getLeastSignificantBits());
+        buffer.putInt(record.getTreasureKey());
+        buffer.putLong(record.getRedeemedAt());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, PAYLOAD_BYTES);
+        buffer.putLong(crc.getValue());
+    }
+
+    private static RedemptionRecord decode(ByteBuffer buffer) {
+        int start = buffer.position();
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), buffer.arrayOffset() + start, PAYLOAD_BYTES);
+        long msb = buffer.getLong();
+        long lsb = buffer.getLong();
+        int treasureKey = buffer.getInt();
+        long redeemedAt = buffer.getLong();
+        if (buffer.getLong() != crc.getValue()) {
+            return null;
+        }
+        return new RedemptionRecord(new UUID(msb, lsb), treasureKey, redeemedAt);
+    }
+
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            plugin.getLogger().log(Level.WARNING, "Failed to close redemption journal", ex);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package it.dominick.th.repository;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.RedemptionRecord;
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+public class RedemptionWriteQueue {
+
+    private static final int MAX_FLUSH_ATTEMPTS = 3;
+
+    private final TreasureHunt plugin;
+    private final TreasureStorage treasureRepo;
+    private final RedemptionJournal journal;
+
+    @Getter
+    private final boolean enabled;
+    private final long flushIntervalMillis;
+    private final int batchSize;
+    private final int maxQueueDepth;
+
+    private final LinkedBlockingDeque<RedemptionRecord> queue;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ScheduledExecutorService flusher;
+
+    private final Object inFlightLock = new Object();
+    private final Deque<PendingBatch> retries = new ArrayDeque<>();
+    private final Set<RedemptionRecord> tombstones = new HashSet<>();
+    private PendingBatch writing;
+    private CompletableFuture<Void> written = CompletableFuture.completedFuture(null);
+
+    public RedemptionWriteQueue(TreasureStorage treasureRepo, RedemptionJournal journal) {
+        this.plugin = TreasureHunt.getInstance();
+        this.treasureRepo = treasureRepo;
+        this.journal = journal;
+
+        ConfigManager config = plugin.getConfigManager();
+        this.enabled = config.getBooleanOrDefault(ConfigFile.CONFIG, "database.writeBehind.enabled", false);
+        this.flushIntervalMillis = Math.max(10L, config.getLongOrDefault(ConfigFile.CONFIG, "database.writeBehind.flushIntervalMillis", 250L));
+        this.batchSize = Math.min(5000, Math.max(1, config.getIntOrDefault(ConfigFile.CONFIG, "database.writeBehind.batchSize", 200)));
+        this.maxQueueDepth = Math.max(batchSize, config.getIntOrDefault(ConfigFile.CONFIG, "database.writeBehind.maxQueueDepth", 10000));
+        this.queue = new LinkedBlockingDeque<>(maxQueueDepth);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TH-DB-Flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        if (enabled) {
+            plugin.getLogger().info("Write-behind redemptions enabled (interval=" + flushIntervalMillis + "ms, batch=" + batchSize + ", maxDepth=" + maxQueueDepth + ")");
+        }
+    }
+
+    public boolean offer(RedemptionRecord record) {
+        if (!enabled || !queue.offer(record)) {
+            return false;
+        }
+
+        if (queue.size() >= batchSize && flushScheduled.compareAndSet(false, true)) {
+            flusher.execute(() -> {
+                flushScheduled.set(false);
+                flush();
+            });
+        }
+        return true;
+    }
+
+    public CompletableFuture<Boolean> cancel(UUID player, int treasureKey) {
+        return cancel(r -> r.getPlayer().equals(player) && r.getTreasureKey() == treasureKey);
+    }
+
+    public CompletableFuture<Boolean> cancel(Predicate<RedemptionRecord> filter) {
+        synchronized (inFlightLock) {
+            boolean pending = queue.removeIf(filter);
+            for (PendingBatch batch : retries) {
+                pending |= batch.records.removeIf(filter);
+            }
+
+            boolean inFlight = false;
+            if (writing != null) {
+                for (RedemptionRecord r : writing.records) {
+                    if (filter.test(r)) {
+                        tombstones.add(r);
+                        inFlight = true;
+                    }
+                }
+            }
+            return inFlight ? written.thenApply(v -> true) : CompletableFuture.completedFuture(pending);
+        }
+    }
+
+    public int getDepth() {
+        synchronized (inFlightLock) {
+            int depth = queue.size();
+            for (PendingBatch batch : retries) {
+                depth += batch.records.size();
+            }
+            return depth;
+        }
+    }
+
+    private void flush() {
+        flushRedemptions();
+        flushCounts();
+    }
+
+    private void flushRedemptions() {
+        while (true) {
+            PendingBatch batch;
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            synchronized (inFlightLock) {
+                batch = retries.pollFirst();
+                if (batch == null) {
+                    List<RedemptionRecord> drained = new ArrayList<>(batchSize);
+                    queue.drainTo(drained, batchSize);
+                    if (drained.isEmpty()) {
+                        return;
+                    }
+                    batch = new PendingBatch(drained);
+                }
+                if (batch.records.isEmpty()) {
+                    continue;
+                }
+                writing = batch;
+                written = done;
+            }
+
+            FlushOutcome outcome = FlushOutcome.RETRY;
+            try {
+                outcome = write(batch);
+            } finally {
+                synchronized (inFlightLock) {
+                    writing = null;
+                    batch.records.removeIf(tombstones::remove);
+                    if (outcome == FlushOutcome.RETRY) {
+                        retries.addFirst(batch);
+                    } else if (outcome == FlushOutcome.SPLIT && batch.records.size() > 1) {
+                        int half = batch.records.size() / 2;
+                        retries.addFirst(new PendingBatch(new ArrayList<>(batch.records.subList(half, batch.records.size()))));
+                        retries.addFirst(new PendingBatch(new ArrayList<>(batch.records.subList(0, half))));
+                    }
+                }
+                done.complete(null);
+            }
+
+            if (outcome == FlushOutcome.RETRY) {
+                return;
+            }
+            if (outcome == FlushOutcome.SPLIT && batch.records.size() == 1) {
+                reject(batch.records.get(0));
+            }
+        }
+    }
+
+    private FlushOutcome write(PendingBatch batch) {
+        int count;
+        try {
+            count = treasureRepo.addRedeemedBatch(batch.records).join();
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to flush redeemed batch", ex);
+            count = -1;
+        }
+
+        if (count >= 0 || (!treasureRepo.isAvailable() && journal.append(batch.records).join())) {
+            return FlushOutcome.WRITTEN;
+        }
+        return ++batch.attempts < MAX_FLUSH_ATTEMPTS ? FlushOutcome.RETRY : FlushOutcome.SPLIT;
+    }
+
+    private void reject(RedemptionRecord record) {
+        if (journal.append(record).join()) {
+            plugin.getLogger().severe("Journaled " + record + " after the database rejected it " + MAX_FLUSH_ATTEMPTS + " times");
+        } else {
+            plugin.getLogger().severe("Dropped " + record + " after the database rejected it " + MAX_FLUSH_ATTEMPTS + " times");
+        }
+    }
+
+    private void flushCounts() {
+        try {
+            while (treasureRepo.flushClaimCounts().join() > 0) {
+                if (treasureRepo.getPendingClaimCounts() == 0) {
+                    return;
+                }
+            }
+        } catch (Exception ex) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to flush claim counters", ex);
+        }
+    }
+
+    public void close() {
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        flush();
+        int pendingCounts = treasureRepo.getPendingClaimCounts();
+        if (pendingCounts > 0) {
+            plugin.getLogger().warning("Shutting down with counters for " + pendingCounts + " claims unapplied, run /th top rebuild to correct them");
+        }
+        List<RedemptionRecord> remaining = new ArrayList<>();
+        synchronized (inFlightLock) {
+            for (PendingBatch batch : retries) {
+                remaining.addAll(batch.records);
+            }
+            retries.clear();
+            queue.drainTo(remaining);
+        }
+        if (!remaining.isEmpty()) {
+            if (journal.append(remaining).join()) {
+                plugin.getLogger().warning("Journaled " + remaining.size() + " unflushed redeemed records for replay on next start");
+                return;
+            }
+            plugin.getLogger().severe("Shutting down with " + remaining.size() + " unflushed redeemed records");
+        }
+    }
+
+    private enum FlushOutcome {
+        WRITTEN,
+        RETRY,
+        SPLIT
+    }
+
+    private static class PendingBatch {
+        final List<RedemptionRecord> records;
+        int attempts;
+
+        PendingBatch(List<RedemptionRecord> records) {
+            this.records = records;
+        }
+    }
+}
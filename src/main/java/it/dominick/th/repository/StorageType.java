@@ -0,0 +1,88 @@
+package it.dominick.th.repository;
+
+import com.zaxxer.hikari.HikariConfig;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+
+import java.io.File;
+import java.util.Locale;
+
+public enum StorageType {
+
+    MYSQL {
+        @Override
+        public void configure(HikariConfig cfg, ConfigManager config, File dataFolder) {
+            String host = config.getString(ConfigFile.CONFIG, "database.host");
+            int port = config.getIntOrDefault(ConfigFile.CONFIG, "database.port", 3306);
+            String database = config.getString(ConfigFile.CONFIG, "database.name");
+            boolean useSsl = config.getBoolean(ConfigFile.CONFIG, "database.useSSL");
+
+            cfg.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=%s&serverTimezone=UTC", host, port, database, useSsl));
+            cfg.setUsername(config.getString(ConfigFile.CONFIG, "database.user"));
+            cfg.setPassword(config.getString(ConfigFile.CONFIG, "database.password"));
+            cfg.addDataSourceProperty("cachePrepStmts", "true");
+            cfg.addDataSourceProperty("prepStmtCacheSize", "250");
+            cfg.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            cfg.addDataSourceProperty("rewriteBatchedStatements", "true");
+        }
+
+        @Override
+        public void configureReplica(HikariConfig cfg, ConfigManager config, File dataFolder) {
+            super.configureReplica(cfg, config, dataFolder);
+            String host = config.getStringOrDefault(ConfigFile.CONFIG, "database.readPool.host", "");
+            if (host.isBlank()) {
+                return;
+            }
+
+            int port = config.getIntOrDefault(ConfigFile.CONFIG, "database.readPool.port", 3306);
+            String database = config.getString(ConfigFile.CONFIG, "database.name");
+            boolean useSsl = config.getBoolean(ConfigFile.CONFIG, "database.useSSL");
+            cfg.setJdbcUrl(String.format("jdbc:mysql://%s:%d/%s?useSSL=%s&serverTimezone=UTC", host, port, database, useSsl));
+        }
+
+        @Override
+        public String tableOptions() {
+            return " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+        }
+    },
+
+    H2 {
+        @Override
+        public void configure(HikariConfig cfg, ConfigManager config, File dataFolder) {
+            String file = config.getStringOrDefault(ConfigFile.CONFIG, "database.file", "treasurehunt");
+            File path = new File(dataFolder, file).getAbsoluteFile();
+
+            boolean autoServer = config.getBooleanOrDefault(ConfigFile.CONFIG, "database.autoServer", false);
+
+            cfg.setDriverClassName("org.h2.Driver");
+            cfg.setJdbcUrl("jdbc:h2:file:" + path.getPath() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;CASE_INSENSITIVE_IDENTIFIERS=TRUE"
+                    + (autoServer ? ";AUTO_SERVER=TRUE" : ""));
+            cfg.setUsername("sa");
+            cfg.setPassword("");
+        }
+
+        @Override
+        public String tableOptions() {
+            return "";
+        }
+    };
+
+    public abstract void configure(HikariConfig cfg, ConfigManager config, File dataFolder);
+
+    public void configureReplica(HikariConfig cfg, ConfigManager config, File dataFolder) {
+        configure(cfg, config, dataFolder);
+        cfg.setReadOnly(true);
+    }
+
+    public abstract String tableOptions();
+
+    public static StorageType fromConfig(String value) {
+        if (value == null || value.isBlank()) {
+            return MYSQL;
+        }
+        return switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "h2", "embedded", "local" -> H2;
+            default -> MYSQL;
+        };
+    }
+}
@@ -1,273 +1,1938 @@
 package it.dominick.th.repository;
 
 import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.model.ChangeEntry;
+import it.dominick.th.model.ChangeType;
+import it.dominick.th.model.ClaimResult;
+import it.dominick.th.model.PageCursor;
+import it.dominick.th.model.RedemptionPage;
+import it.dominick.th.model.RedemptionRecord;
+import it.dominick.th.model.ResetScope;
+import it.dominick.th.model.Season;
+import it.dominick.th.model.TreasureDefinition;
 import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.util.UuidUtils;
+import lombok.Getter;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
-public class TreasureRepository {
+public class TreasureRepository implements TreasureStorage {
 
     private final TreasureHunt plugin;
     private final DatabaseRepository db;
+    private static final int COMPACT_SCHEMA_VERSION = 2;
+    private static final int SCHEMA_VERSION = 3;
+    private static final int MAX_COUNT_FLUSH = 2000;
+
     private final String redeemedTable;
+    private final String legacyRedeemedTable;
     private final String treasuresTable;
+    private final String schemaTable;
+    private final String changeLogTable;
+    private final String archiveTable;
+    private final String seasonsTable;
+    private final String playerCountsTable;
+    private final String treasureCountsTable;
+    private final String playersTable;
+    private final String pendingRewardsTable;
+    private volatile boolean legacyPresent;
+    private volatile RedemptionCountListener countListener;
+    private final ConcurrentLinkedQueue<RedemptionRecord> pendingClaims = new ConcurrentLinkedQueue<>();
+
+    @Getter
+    private final String nodeId;
+    @Getter
+    private final boolean changeLogEnabled;
 
     public TreasureRepository(DatabaseRepository db) {
         plugin = TreasureHunt.getInstance();
         this.db = db;
         this.redeemedTable = "th_redeemed";
+        this.legacyRedeemedTable = "th_redeemed_legacy";
         this.treasuresTable = "th_treasures";
+        this.schemaTable = "th_schema";
+        this.changeLogTable = "th_changelog";
+        this.archiveTable = "th_redeemed_archive";
+        this.seasonsTable = "th_seasons";
+        this.playerCountsTable = "th_player_counts";
+        this.treasureCountsTable = "th_treasure_counts";
+        this.playersTable = "th_players";
+        this.pendingRewardsTable = "th_pending_rewards";
+
+        String configuredNode = plugin.getConfigManager().getStringOrDefault(ConfigFile.CONFIG, "sync.nodeId", "");
+        this.nodeId = configuredNode == null || configuredNode.isBlank() ? UUID.randomUUID().toString() : configuredNode;
+        this.changeLogEnabled = plugin.getConfigManager().getBooleanOrDefault(ConfigFile.CONFIG, "sync.enabled", false);
     }
 
+    @Override
     public CompletableFuture<Void> createTableIfNotExists() {
+        String schemaSql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `name` VARCHAR(64) NOT NULL,
+                  `version` INT NOT NULL,
+                  PRIMARY KEY (`name`)
+                )%s;
+                """, schemaTable, db.getStorageType().tableOptions());
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(schemaSql);
+                int version = readSchemaVersion(conn);
+                boolean legacy = version < COMPACT_SCHEMA_VERSION && tableExists(conn, redeemedTable);
+                if (legacy && !tableExists(conn, legacyRedeemedTable)) {
+                    stmt.execute(String.format("ALTER TABLE `%s` RENAME TO `%s`", redeemedTable, legacyRedeemedTable));
+                    plugin.getLogger().info("Renamed legacy " + redeemedTable + " to " + legacyRedeemedTable + " for migration");
+                }
+                return version;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to read schema version", ex);
+                return SCHEMA_VERSION;
+            }
+        }).thenCompose(version -> createTreasuresTableIfNotExists()
+                .thenCompose(v -> createChangeLogTableIfNotExists())
+                .thenCompose(v -> createSeasonTablesIfNotExists())
+                .thenCompose(v -> createRedeemedTableIfNotExists(version))
+                .thenCompose(v -> createCountTablesIfNotExists())
+                .thenCompose(v -> createPlayersTableIfNotExists())
+                .thenCompose(v -> createPendingRewardsTableIfNotExists()));
+    }
+
+    private CompletableFuture<Void> createPendingRewardsTableIfNotExists() {
         String sql = String.format("""
                 CREATE TABLE IF NOT EXISTS `%s` (
-                  `id` INT UNSIGNED NOT NULL AUTO_INCREMENT,
-                  `player_uuid` CHAR(36) NOT NULL,
+                  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+                  `player_uuid` BINARY(16) NOT NULL,
                   `treasure_id` VARCHAR(128) NOT NULL,
+                  `world` VARCHAR(128) NOT NULL,
+                  `x` INT NOT NULL,
+                  `y` INT NOT NULL,
+                  `z` INT NOT NULL,
+                  `command` TEXT NOT NULL,
+                  `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                  PRIMARY KEY (`id`),
+                  INDEX `pending_reward_player_index` (`player_uuid`)
+                )%s;
+                """, pendingRewardsTable, db.getStorageType().tableOptions());
+
+        return db.runAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to create table: " + pendingRewardsTable, ex);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> createPlayersTableIfNotExists() {
+        String sql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `player_uuid` BINARY(16) NOT NULL,
+                  `name` VARCHAR(16) NOT NULL,
+                  `updated_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                  PRIMARY KEY (`player_uuid`),
+                  INDEX `player_name_index` (`name`)
+                )%s;
+                """, playersTable, db.getStorageType().tableOptions());
+
+        return db.runAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to create table: " + playersTable, ex);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> createCountTablesIfNotExists() {
+        String playersSql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `player_uuid` BINARY(16) NOT NULL,
+                  `found` INT NOT NULL,
+                  PRIMARY KEY (`player_uuid`)
+                )%s;
+                """, playerCountsTable, db.getStorageType().tableOptions());
+
+        String treasuresSql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `treasure_key` INT NOT NULL,
+                  `claims` INT NOT NULL,
+                  PRIMARY KEY (`treasure_key`)
+                )%s;
+                """, treasureCountsTable, db.getStorageType().tableOptions());
+
+        return db.runAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                boolean created = !tableExists(conn, playerCountsTable);
+                stmt.execute(playersSql);
+                stmt.execute(treasuresSql);
+                if (created) {
+                    int players = inTransaction(conn, () -> rebuildCounts(conn));
+                    plugin.getLogger().info("Built redemption counters for " + players + " players");
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to create tables: " + playerCountsTable + ", " + treasureCountsTable, ex);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> createSeasonTablesIfNotExists() {
+        String seasonsSql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `id` INT NOT NULL AUTO_INCREMENT,
+                  `name` VARCHAR(64) NOT NULL,
+                  `started_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                  `closed_at` TIMESTAMP(3) NULL,
+                  `archived_at` TIMESTAMP(3) NULL,
+                  PRIMARY KEY (`id`),
+                  UNIQUE KEY `season_name_unique` (`name`)
+                )%s;
+                """, seasonsTable, db.getStorageType().tableOptions());
+
+        String archiveSql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `id` BIGINT UNSIGNED NOT NULL,
+                  `season_id` INT NULL,
+                  `player_uuid` BINARY(16) NOT NULL,
+                  `treasure_key` INT NOT NULL,
+                  `redeemed_at` TIMESTAMP NOT NULL,
+                  `archived_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                  PRIMARY KEY (`id`),
+                  INDEX `archive_treasure_time_index` (`treasure_key`, `redeemed_at`, `id`),
+                  INDEX `archive_player_time_index` (`player_uuid`, `redeemed_at`, `id`)
+                )%s;
+                """, archiveTable, db.getStorageType().tableOptions());
+
+        return db.runAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(seasonsSql);
+                stmt.execute(archiveSql);
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to create tables: " + seasonsTable + ", " + archiveTable, ex);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> createChangeLogTableIfNotExists() {
+        String sql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+                  `origin` VARCHAR(64) NOT NULL,
+                  `type` TINYINT NOT NULL,
+                  `treasure_id` VARCHAR(128) NULL,
+                  `treasure_key` INT NULL,
+                  `player_uuid` BINARY(16) NULL,
+                  `created_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
+                  PRIMARY KEY (`id`),
+                  INDEX `changelog_time_index` (`created_at`)
+                )%s;
+                """, changeLogTable, db.getStorageType().tableOptions());
+
+        return db.runAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to create table: " + changeLogTable, ex);
+            }
+        });
+    }
+
+    private CompletableFuture<Void> createRedeemedTableIfNotExists(int version) {
+        String sql = String.format("""
+                CREATE TABLE IF NOT EXISTS `%s` (
+                  `id` BIGINT UNSIGNED NOT NULL AUTO_INCREMENT,
+                  `player_uuid` BINARY(16) NOT NULL,
+                  `treasure_key` INT NOT NULL,
                   `redeemed_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
                   PRIMARY KEY (`id`),
-                  INDEX (`player_uuid`),
-                  UNIQUE KEY `player_treasure_unique` (`player_uuid`, `treasure_id`)
-                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
-                """, redeemedTable);
+                  UNIQUE KEY `player_treasure_key_unique` (`player_uuid`, `treasure_key`),
+                  INDEX `treasure_time_index` (`treasure_key`, `redeemed_at`, `id`),
+                  INDEX `player_time_index` (`player_uuid`, `redeemed_at`, `id`)
+                )%s;
+                """, redeemedTable, db.getStorageType().tableOptions());
 
         return db.runAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection();
+            try (Connection conn = db.getConnection();
                  Statement stmt = conn.createStatement()) {
                 stmt.execute(sql);
+                if (version == COMPACT_SCHEMA_VERSION) {
+                    stmt.execute(String.format("DROP INDEX `treasure_key_index` ON `%s`", redeemedTable));
+                    stmt.execute(String.format("CREATE INDEX `treasure_time_index` ON `%s` (`treasure_key`, `redeemed_at`, `id`)", redeemedTable));
+                    stmt.execute(String.format("CREATE INDEX `player_time_index` ON `%s` (`player_uuid`, `redeemed_at`, `id`)", redeemedTable));
+                    plugin.getLogger().info("Added keyset pagination indexes to " + redeemedTable);
+                }
+                if (version < SCHEMA_VERSION) {
+                    writeSchemaVersion(conn, SCHEMA_VERSION);
+                }
+                legacyPresent = tableExists(conn, legacyRedeemedTable);
             } catch (SQLException ex) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to create table: " + redeemedTable, ex);
             }
-        }).thenCompose(v -> createTreasuresTableIfNotExists());
+        }).thenRun(() -> {
+            if (legacyPresent) {
+                db.runAsync(this::migrateLegacyRedemptions);
+            }
+        });
     }
 
+    @Override
     public CompletableFuture<Void> createTreasuresTableIfNotExists() {
         String sql = String.format("""
                 CREATE TABLE IF NOT EXISTS `%s` (
                   `treasure_id` VARCHAR(128) NOT NULL,
+                  `treasure_key` INT NOT NULL AUTO_INCREMENT,
                   `world` VARCHAR(128) NOT NULL,
                   `x` INT NOT NULL,
                   `y` INT NOT NULL,
                   `z` INT NOT NULL,
                   `command` TEXT NOT NULL,
                   `created_at` TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                  `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3),
                   PRIMARY KEY (`treasure_id`),
-                  INDEX (`world`, `x`, `y`, `z`)
-                ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+                  UNIQUE KEY `treasure_key_unique` (`treasure_key`),
+                  INDEX (`world`, `x`, `y`, `z`),
+                  INDEX `treasure_updated_index` (`updated_at`)
+                )%s;
+                """, treasuresTable, db.getStorageType().tableOptions());
+
+        String addKeySql = String.format("""
+                ALTER TABLE `%s` ADD COLUMN `treasure_key` INT NOT NULL AUTO_INCREMENT UNIQUE
+                """, treasuresTable);
+
+        String addUpdatedSql = String.format("""
+                ALTER TABLE `%s` ADD COLUMN `updated_at` TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3)
                 """, treasuresTable);
 
         return db.runAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection();
+            try (Connection conn = db.getConnection();
                  Statement stmt = conn.createStatement()) {
                 stmt.execute(sql);
+                if (!columnExists(conn, treasuresTable, "treasure_key")) {
+                    stmt.execute(addKeySql);
+                    plugin.getLogger().info("Added treasure_key surrogate column to " + treasuresTable);
+                }
+                if (!columnExists(conn, treasuresTable, "updated_at")) {
+                    stmt.execute(addUpdatedSql);
+                    stmt.execute(String.format("CREATE INDEX `treasure_updated_index` ON `%s` (`updated_at`)", treasuresTable));
+                    plugin.getLogger().info("Added updated_at sync column to " + treasuresTable);
+                }
             } catch (SQLException ex) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to create table: " + treasuresTable, ex);
             }
         });
     }
 
-    public CompletableFuture<Boolean> addRedeemed(UUID player, String treasureId) {
+    private void migrateLegacyRedemptions() {
+        String selectSql = String.format("""
+                SELECT r.id, r.player_uuid, t.treasure_key, r.redeemed_at FROM `%s` r
+                LEFT JOIN `%s` t ON t.treasure_id = r.treasure_id
+                WHERE r.id > ? ORDER BY r.id LIMIT ?
+                """, legacyRedeemedTable, treasuresTable);
+
+        String insertSql = String.format("""
+                INSERT IGNORE INTO `%s` (player_uuid, treasure_key, redeemed_at) VALUES (?, ?, ?)
+                """, redeemedTable);
+
+        String deleteSql = String.format("""
+                DELETE FROM `%s` WHERE id <= ?
+                """, legacyRedeemedTable);
+
+        int chunkSize = Math.max(100, plugin.getConfigManager().getIntOrDefault(ConfigFile.CONFIG, "database.migration.chunkSize", 5000));
+        long lastId = 0;
+        long copied = 0;
+
+        plugin.getLogger().info("Migrating legacy redemptions to the compact schema in chunks of " + chunkSize);
+        try (Connection conn = db.getConnection()) {
+            while (true) {
+                int scanned = 0;
+                conn.setAutoCommit(false);
+                try (PreparedStatement select = conn.prepareStatement(selectSql);
+                     PreparedStatement insert = conn.prepareStatement(insertSql);
+                     PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+                    select.setLong(1, lastId);
+                    select.setInt(2, chunkSize);
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            scanned++;
+                            lastId = rs.getLong(1);
+                            int treasureKey = rs.getInt(3);
+                            if (rs.wasNull()) continue;
+
+                            UUID player;
+                            try {
+                                player = UUID.fromString(rs.getString(2));
+                            } catch (IllegalArgumentException ex) {
+                                continue;
+                            }
+
+                            insert.setBytes(1, UuidUtils.toBytes(player));
+                            insert.setInt(2, treasureKey);
+                            insert.setTimestamp(3, rs.getTimestamp(4));
+                            insert.addBatch();
+                            copied++;
+                        }
+                    }
+
+                    if (scanned > 0) {
+                        insert.executeBatch();
+                        delete.setLong(1, lastId);
+                        delete.executeUpdate();
+                    }
+                    conn.commit();
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+
+                if (scanned < chunkSize) {
+                    break;
+                }
+            }
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(String.format("DROP TABLE `%s`", legacyRedeemedTable));
+            }
+            legacyPresent = false;
+            inTransaction(conn, () -> rebuildCounts(conn));
+            notifyCountsStale(null, null);
+            plugin.getLogger().info("Legacy redemption migration complete, copied " + copied + " rows");
+        } catch (SQLException ex) {
+            plugin.getLogger().log(Level.SEVERE, "Legacy redemption migration stopped at id " + lastId + ", it will resume on next start", ex);
+        }
+    }
+
+    private int readSchemaVersion(Connection conn) throws SQLException {
+        String sql = String.format("""
+                SELECT version FROM `%s` WHERE name = ?
+                """, schemaTable);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, "redeemed");
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private void writeSchemaVersion(Connection conn, int version) throws SQLException {
+        String sql = String.format("""
+                INSERT INTO `%s` (name, version) VALUES (?, ?)
+                ON DUPLICATE KEY UPDATE version = VALUES(version)
+                """, schemaTable);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, "redeemed");
+            ps.setInt(2, version);
+            ps.executeUpdate();
+        }
+    }
+
+    private boolean tableExists(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getTables(conn.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+
+    private boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getColumns(conn.getCatalog(), null, table, column)) {
+            return rs.next();
+        }
+    }
+
+    @Override
+    public CompletableFuture<ClaimResult> addRedeemed(UUID player, int treasureKey) {
         String sql = String.format("""
-                INSERT INTO `%s` (player_uuid, treasure_id) VALUES (?, ?)
+                INSERT IGNORE INTO `%s` (player_uuid, treasure_key) VALUES (?, ?)
                 """, redeemedTable);
 
-        return db.supplyAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection();
+        return db.supplyAsync(QueryIntent.CLAIM, () -> {
+            try (Connection conn = db.getConnection(QueryIntent.CLAIM);
                  PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, player.toString());
-                ps.setString(2, treasureId);
-                ps.executeUpdate();
-                return true;
-            } catch (SQLException ex) {
-                if (ex.getSQLState() != null && ex.getSQLState().startsWith("23")) {
-                    return false;
+                ps.setBytes(1, UuidUtils.toBytes(player));
+                ps.setInt(2, treasureKey);
+                if (ps.executeUpdate() == 0) {
+                    return ClaimResult.ALREADY_CLAIMED;
                 }
+                pendingClaims.add(new RedemptionRecord(player, treasureKey, System.currentTimeMillis()));
+                return ClaimResult.CLAIMED;
+            } catch (SQLException ex) {
                 plugin.getLogger().log(Level.SEVERE, "Failed to insert redeemed record", ex);
-                return false;
+                return ClaimResult.FAILED;
             }
         });
     }
 
-    public CompletableFuture<Boolean> removeRedeemed(UUID player, String treasureId) {
-        String sql = String.format("""
-                DELETE FROM `%s` WHERE player_uuid = ? AND treasure_id = ?
-                """, redeemedTable);
+    @Override
+    public CompletableFuture<Integer> flushClaimCounts() {
+        List<RedemptionRecord> batch = new ArrayList<>();
+        RedemptionRecord next;
+        while (batch.size() < MAX_COUNT_FLUSH && (next = pendingClaims.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
 
         return db.supplyAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, player.toString());
-                ps.setString(2, treasureId);
-                int updated = ps.executeUpdate();
-                return updated > 0;
+            CountDelta delta = CountDelta.of(batch, 1);
+            try (Connection conn = db.getConnection()) {
+                inTransaction(conn, () -> {
+                    applyCounts(conn, delta);
+                    appendRedeemChanges(conn, batch);
+                    return batch.size();
+                });
+                notifyCounts(delta);
+                return batch.size();
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to delete redeemed record", ex);
-                return false;
+                pendingClaims.addAll(batch);
+                plugin.getLogger().log(Level.WARNING, "Failed to apply counters for " + batch.size() + " claims, retrying on the next flush", ex);
+                return -1;
+            }
+        });
+    }
+
+    @Override
+    public int getPendingClaimCounts() {
+        return pendingClaims.size();
+    }
+
+    @Override
+    public CompletableFuture<Integer> addRedeemedBatch(List<RedemptionRecord> batch) {
+        if (batch.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+
+        StringBuilder sql = new StringBuilder(String.format(
+                "INSERT IGNORE INTO `%s` (player_uuid, treasure_key, redeemed_at) VALUES ", redeemedTable));
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+
+        return db.supplyAsync(QueryIntent.CLAIM, () -> {
+            try (Connection conn = db.getConnection(QueryIntent.CLAIM);
+                 PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+                int index = 1;
+                for (RedemptionRecord r : batch) {
+                    ps.setBytes(index++, UuidUtils.toBytes(r.getPlayer()));
+                    ps.setInt(index++, r.getTreasureKey());
+                    ps.setTimestamp(index++, new Timestamp(r.getRedeemedAt()));
+                }
+                CountDelta delta = CountDelta.of(batch, 1);
+                int inserted = inTransaction(conn, () -> {
+                    int rows = ps.executeUpdate();
+                    if (rows == batch.size()) {
+                        applyCounts(conn, delta);
+                    } else {
+                        recountPlayers(conn, delta.players.keySet());
+                        recountTreasures(conn, delta.treasures.keySet());
+                    }
+                    appendRedeemChanges(conn, batch);
+                    return rows;
+                });
+                if (inserted == batch.size()) {
+                    notifyCounts(delta);
+                } else {
+                    notifyCountsStale(delta.players.keySet(), delta.treasures.keySet());
+                }
+                return inserted;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to insert batch of " + batch.size() + " redeemed records", ex);
+                return -1;
             }
         });
     }
 
-    public CompletableFuture<Boolean> isRedeemed(UUID player, String treasureId) {
+    @Override
+    public CompletableFuture<Boolean> addPendingReward(UUID player, TreasureDefinition treasure) {
         String sql = String.format("""
-                SELECT 1 FROM `%s` WHERE player_uuid = ? AND treasure_id = ? LIMIT 1
-                """, redeemedTable);
+                INSERT INTO `%s` (player_uuid, treasure_id, world, x, y, z, command) VALUES (?, ?, ?, ?, ?, ?, ?)
+                """, pendingRewardsTable);
 
         return db.supplyAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection();
+            try (Connection conn = db.getConnection();
                  PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, player.toString());
-                ps.setString(2, treasureId);
-                try (ResultSet rs = ps.executeQuery()) {
-                    return rs.next();
-                }
+                ps.setBytes(1, UuidUtils.toBytes(player));
+                ps.setString(2, treasure.getId());
+                ps.setString(3, treasure.getWorld());
+                ps.setInt(4, treasure.getX());
+                ps.setInt(5, treasure.getY());
+                ps.setInt(6, treasure.getZ());
+                ps.setString(7, treasure.getCommand());
+                return ps.executeUpdate() > 0;
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to query redeemed record", ex);
+                plugin.getLogger().log(Level.SEVERE, "Failed to store a pending reward for " + player, ex);
                 return false;
             }
         });
     }
 
-    public CompletableFuture<List<String>> getRedeemedForPlayer(UUID player) {
+    @Override
+    public CompletableFuture<List<TreasureDefinition>> takePendingRewards(UUID player) {
+        String selectSql = String.format("""
+                SELECT id, treasure_id, world, x, y, z, command FROM `%s` WHERE player_uuid = ? ORDER BY id
+                """, pendingRewardsTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement select = conn.prepareStatement(selectSql)) {
+                select.setBytes(1, UuidUtils.toBytes(player));
+                return inTransaction(conn, () -> {
+                    List<Long> ids = new ArrayList<>();
+                    List<TreasureDefinition> rewards = new ArrayList<>();
+                    try (ResultSet rs = select.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                            rewards.add(new TreasureDefinition(rs.getString(2), rs.getString(3), rs.getInt(4), rs.getInt(5), rs.getInt(6), rs.getString(7)));
+                        }
+                    }
+                    if (ids.isEmpty()) {
+                        return rewards;
+                    }
+
+                    String deleteSql = String.format("DELETE FROM `%s` WHERE id IN (%s)", pendingRewardsTable, String.join(", ", Collections.nCopies(ids.size(), "?")));
+                    try (PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+                        for (int i = 0; i < ids.size(); i++) {
+                            delete.setLong(i + 1, ids.get(i));
+                        }
+                        if (delete.executeUpdate() != ids.size()) {
+                            throw new SQLException("Pending rewards for " + player + " were taken concurrently");
+                        }
+                    }
+                    return rewards;
+                });
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to read pending rewards for " + player, ex);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> removeRedeemed(UUID player, int treasureKey) {
         String sql = String.format("""
-                SELECT treasure_id FROM `%s` WHERE player_uuid = ?
+                DELETE FROM `%s` WHERE player_uuid = ? AND treasure_key = ?
                 """, redeemedTable);
 
         return db.supplyAsync(() -> {
-            List<String> list = new ArrayList<>();
-            try (Connection conn = db.getDataSource().getConnection();
+            try (Connection conn = db.getConnection();
                  PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, player.toString());
-                try (ResultSet rs = ps.executeQuery()) {
-                    while (rs.next()) {
-                        list.add(rs.getString(1));
+                ps.setBytes(1, UuidUtils.toBytes(player));
+                ps.setInt(2, treasureKey);
+                CountDelta delta = new CountDelta();
+                delta.add(player, treasureKey, -1);
+                boolean removed = inTransaction(conn, () -> {
+                    if (ps.executeUpdate() == 0) {
+                        return false;
                     }
+                    applyCounts(conn, delta);
+                    appendChange(conn, ChangeType.REDEEM_REMOVE, null, treasureKey, player);
+                    return true;
+                });
+                if (removed) {
+                    notifyCounts(delta);
                 }
+                return removed;
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to list redeemed records for player", ex);
+                plugin.getLogger().log(Level.SEVERE, "Failed to delete redeemed record", ex);
+                return false;
             }
-            return list;
         });
     }
 
-    public CompletableFuture<Boolean> insertTreasure(String treasureId, String world, int x, int y, int z, String command) {
-        String sql = String.format("""
-                INSERT INTO `%s` (treasure_id, world, x, y, z, command) VALUES (?, ?, ?, ?, ?, ?)
-                ON DUPLICATE KEY UPDATE world = VALUES(world), x = VALUES(x), y = VALUES(y), z = VALUES(z), command = VALUES(command)
-                """, treasuresTable);
-
+    @Override
+    public CompletableFuture<Boolean> appendRedemptionsReset() {
         return db.supplyAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, treasureId);
-                ps.setString(2, world);
-                ps.setInt(3, x);
-                ps.setInt(4, y);
-                ps.setInt(5, z);
-                ps.setString(6, command);
-                ps.executeUpdate();
+            try (Connection conn = db.getConnection()) {
+                appendChange(conn, ChangeType.REDEEM_RESET, null, 0, null);
                 return true;
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to insert/update treasure record", ex);
+                plugin.getLogger().log(Level.SEVERE, "Failed to record a redemption reset in the change log", ex);
                 return false;
             }
         });
     }
 
-    public CompletableFuture<Integer> deleteTreasure(String treasureId) {
-        String deleteTreasureSql = String.format("""
-                DELETE FROM `%s` WHERE treasure_id = ?
-                """, treasuresTable);
-
-        String deleteRedeemedSql = String.format("""
-                DELETE FROM `%s` WHERE treasure_id = ?
-                """, redeemedTable);
+    @Override
+    public CompletableFuture<RedemptionPage> deleteRedeemedChunk(ResetScope scope, int treasureKey, UUID player, PageCursor after, int limit) {
+        String selectSql = String.format("""
+                SELECT id, player_uuid, treasure_key, redeemed_at FROM `%s`
+                WHERE %sid > ? ORDER BY id LIMIT ?
+                """, redeemedTable, switch (scope) {
+            case ALL -> "";
+            case TREASURE -> "treasure_key = ? AND ";
+            case PLAYER -> "player_uuid = ? AND ";
+        });
 
         return db.supplyAsync(() -> {
-            try (Connection conn = db.getDataSource().getConnection()) {
-                conn.setAutoCommit(false);
-                try (PreparedStatement ps1 = conn.prepareStatement(deleteRedeemedSql);
-                     PreparedStatement ps2 = conn.prepareStatement(deleteTreasureSql)) {
-                    ps1.setString(1, treasureId);
-                    ps1.executeUpdate();
+            List<RedemptionRecord> list = new ArrayList<>(limit);
+            List<Long> ids = new ArrayList<>(limit);
+            long lastAt = 0;
+            try (Connection conn = db.getConnection()) {
+                try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                    int index = 1;
+                    if (scope == ResetScope.TREASURE) {
+                        ps.setInt(index++, treasureKey);
+                    } else if (scope == ResetScope.PLAYER) {
+                        ps.setBytes(index++, UuidUtils.toBytes(player));
+                    }
+                    ps.setLong(index++, after != null ? after.getId() : 0L);
+                    ps.setInt(index, limit);
+                    ps.setFetchSize(limit);
 
-                    ps2.setString(1, treasureId);
-                    int affected = ps2.executeUpdate();
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                            lastAt = rs.getTimestamp(4).getTime();
+                            list.add(new RedemptionRecord(UuidUtils.fromBytes(rs.getBytes(2)), rs.getInt(3), lastAt));
+                        }
+                    }
+                }
 
-                    conn.commit();
-                    return affected;
-                } catch (SQLException ex) {
-                    try {
-                        conn.rollback();
-                    } catch (SQLException e) {
-                        plugin.getLogger().log(Level.WARNING, "Failed to rollback deleteTreasure transaction", e);
+                if (ids.isEmpty()) {
+                    return RedemptionPage.empty();
+                }
+
+                String deleteSql = scope == ResetScope.ALL
+                        ? String.format("DELETE FROM `%s` WHERE id >= ? AND id <= ?", redeemedTable)
+                        : String.format("DELETE FROM `%s` WHERE id IN (%s)", redeemedTable, String.join(", ", Collections.nCopies(ids.size(), "?")));
+
+                try (PreparedStatement ps = conn.prepareStatement(deleteSql)) {
+                    if (scope == ResetScope.ALL) {
+                        ps.setLong(1, ids.get(0));
+                        ps.setLong(2, ids.get(ids.size() - 1));
+                    } else {
+                        int index = 1;
+                        for (long id : ids) {
+                            ps.setLong(index++, id);
+                        }
                     }
-                    plugin.getLogger().log(Level.SEVERE, "Failed to delete treasure: " + treasureId, ex);
-                    return -1;
-                } finally {
-                    try {
-                        conn.setAutoCommit(true);
-                    } catch (SQLException ignored) {
+                    CountDelta delta = CountDelta.of(list, -1);
+                    boolean exact = inTransaction(conn, () -> {
+                        boolean matched = ps.executeUpdate() == ids.size();
+                        applyDeletedCounts(conn, delta, matched);
+                        if (scope != ResetScope.ALL) {
+                            appendChange(conn, ChangeType.REDEEM_RESET, null,
+                                    scope == ResetScope.TREASURE ? treasureKey : 0,
+                                    scope == ResetScope.PLAYER ? player : null);
+                        }
+                        return matched;
+                    });
+                    notifyDeletedCounts(delta, exact);
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to delete chunk of redeemed records (" + scope + ")", ex);
+                return null;
+            }
+
+            PageCursor next = new PageCursor(lastAt, ids.get(ids.size() - 1));
+            return new RedemptionPage(list, next, list.size() == limit);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isRedeemed(UUID player, int treasureKey) {
+        String sql = String.format("""
+                SELECT 1 FROM `%s` WHERE player_uuid = ? AND treasure_key = ? LIMIT 1
+                """, redeemedTable);
+
+        return db.supplyAsync(QueryIntent.CLAIM, () -> {
+            try (Connection conn = db.getConnection(QueryIntent.CLAIM);
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setBytes(1, UuidUtils.toBytes(player));
+                ps.setInt(2, treasureKey);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        return true;
                     }
                 }
+                return legacyPresent && getLegacyRedeemed(conn, player).contains(treasureKey);
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to delete treasure (connection): " + treasureId, ex);
-                return -1;
+                plugin.getLogger().log(Level.SEVERE, "Failed to query redeemed record", ex);
+                return false;
             }
         });
     }
 
-    public CompletableFuture<List<TreasureRecord>> getAllTreasures() {
+    @Override
+    public CompletableFuture<RedemptionPage> getRedeemedChunk(PageCursor after, int limit) {
         String sql = String.format("""
-                SELECT treasure_id, world, x, y, z, command FROM `%s`
-                """, treasuresTable);
+                SELECT id, player_uuid, treasure_key, redeemed_at FROM `%s`
+                WHERE id > ? ORDER BY id LIMIT ?
+                """, redeemedTable);
 
-        return db.supplyAsync(() -> {
-            List<TreasureRecord> list = new ArrayList<>();
-            try (Connection conn = db.getDataSource().getConnection();
-                 PreparedStatement ps = conn.prepareStatement(sql);
-                 ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    String id = rs.getString(1);
-                    String world = rs.getString(2);
-                    int x = rs.getInt(3);
-                    int y = rs.getInt(4);
-                    int z = rs.getInt(5);
-                    String command = rs.getString(6);
-                    list.add(new TreasureRecord(id, world, x, y, z, command));
+        return db.supplyAsync(QueryIntent.READ, () -> {
+            List<RedemptionRecord> list = new ArrayList<>(limit);
+            long lastId = after != null ? after.getId() : 0L;
+            long lastAt = 0;
+            try (Connection conn = db.getConnection(QueryIntent.READ);
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, lastId);
+                ps.setInt(2, limit);
+                ps.setFetchSize(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getLong(1);
+                        lastAt = rs.getTimestamp(4).getTime();
+                        list.add(new RedemptionRecord(UuidUtils.fromBytes(rs.getBytes(2)), rs.getInt(3), lastAt));
+                    }
                 }
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to list treasures", ex);
+                plugin.getLogger().log(Level.SEVERE, "Failed to read redeemed records after id " + lastId, ex);
+                return null;
             }
-            return list;
+            return new RedemptionPage(list, new PageCursor(lastAt, lastId), list.size() == limit);
         });
     }
 
-    public CompletableFuture<List<String>> getPlayersRedeemed(String treasureId) {
+    @Override
+    public boolean isLegacyMigrationPending() {
+        return legacyPresent;
+    }
+
+    @Override
+    public CompletableFuture<List<Integer>> getRedeemedForPlayer(UUID player) {
         String sql = String.format("""
-                SELECT player_uuid FROM `%s` WHERE treasure_id = ?
+                SELECT treasure_key FROM `%s` WHERE player_uuid = ?
                 """, redeemedTable);
 
-        return db.supplyAsync(() -> {
-            List<String> list = new ArrayList<>();
-            try (Connection conn = db.getDataSource().getConnection();
+        return db.supplyAsync(QueryIntent.CLAIM, () -> {
+            List<Integer> list = new ArrayList<>();
+            try (Connection conn = db.getConnection(QueryIntent.CLAIM);
                  PreparedStatement ps = conn.prepareStatement(sql)) {
-                ps.setString(1, treasureId);
+                ps.setBytes(1, UuidUtils.toBytes(player));
                 try (ResultSet rs = ps.executeQuery()) {
                     while (rs.next()) {
-                        list.add(rs.getString(1));
+                        list.add(rs.getInt(1));
                     }
                 }
+                if (legacyPresent) {
+                    list.addAll(getLegacyRedeemed(conn, player));
+                }
             } catch (SQLException ex) {
-                plugin.getLogger().log(Level.SEVERE, "Failed to list players redeemed for treasure: " + treasureId, ex);
+                plugin.getLogger().log(Level.SEVERE, "Failed to list redeemed records for player", ex);
+                throw new CompletionException(ex);
             }
             return list;
         });
     }
 
+    @Override
+    public CompletableFuture<TreasureRecord> insertTreasure(String treasureId, String world, int x, int y, int z, String command) {
+        String sql = String.format("""
+                INSERT INTO `%s` (treasure_id, world, x, y, z, command, updated_at) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP(3))
+                ON DUPLICATE KEY UPDATE world = VALUES(world), x = VALUES(x), y = VALUES(y), z = VALUES(z),
+                  command = VALUES(command), updated_at = VALUES(updated_at)
+                """, treasuresTable);
+
+        String selectSql = String.format("""
+                SELECT treasure_key, treasure_id, world, x, y, z, command, updated_at FROM `%s` WHERE treasure_id = ?
+                """, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 PreparedStatement select = conn.prepareStatement(selectSql)) {
+                ps.setString(1, treasureId);
+                ps.setString(2, world);
+                ps.setInt(3, x);
+                ps.setInt(4, y);
+                ps.setInt(5, z);
+                ps.setString(6, command);
+                select.setString(1, treasureId);
+                return withChangeLog(conn, () -> {
+                    ps.executeUpdate();
+                    try (ResultSet rs = select.executeQuery()) {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        TreasureRecord record = readTreasure(rs);
+                        appendChange(conn, ChangeType.TREASURE_UPSERT, treasureId, record.getKey(), null);
+                        return record;
+                    }
+                });
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to insert/update treasure record", ex);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> insertTreasures(Iterator<TreasureDefinition> source, int batchSize) {
+        String sql = String.format("""
+                INSERT INTO `%s` (treasure_id, world, x, y, z, command, updated_at) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP(3))
+                ON DUPLICATE KEY UPDATE world = VALUES(world), x = VALUES(x), y = VALUES(y), z = VALUES(z),
+                  command = VALUES(command), updated_at = VALUES(updated_at)
+                """, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                conn.setAutoCommit(false);
+                int count = 0;
+                try {
+                    while (source.hasNext()) {
+                        TreasureDefinition d = source.next();
+                        ps.setString(1, d.getId());
+                        ps.setString(2, d.getWorld());
+                        ps.setInt(3, d.getX());
+                        ps.setInt(4, d.getY());
+                        ps.setInt(5, d.getZ());
+                        ps.setString(6, d.getCommand());
+                        ps.addBatch();
+
+                        if (++count % batchSize == 0) {
+                            ps.executeBatch();
+                        }
+                    }
+
+                    if (count % batchSize != 0) {
+                        ps.executeBatch();
+                    }
+                    if (count > 0) {
+                        appendChange(conn, ChangeType.TREASURE_BULK, null, 0, null);
+                    }
+                    conn.commit();
+                    return count;
+                } catch (SQLException | RuntimeException ex) {
+                    conn.rollback();
+                    throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to import treasures", ex);
+                return -1;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<String>> insertNewTreasures(List<TreasureDefinition> definitions, int batchSize) {
+        String insertSql = String.format("""
+                INSERT IGNORE INTO `%s` (treasure_id, world, x, y, z, command, updated_at) VALUES (?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP(3))
+                """, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(insertSql)) {
+                conn.setAutoCommit(false);
+                try {
+                    List<String> rejected = new ArrayList<>();
+                    int inserted = 0;
+                    for (int from = 0; from < definitions.size(); from += batchSize) {
+                        List<TreasureDefinition> batch = definitions.subList(from, Math.min(definitions.size(), from + batchSize));
+                        for (TreasureDefinition d : batch) {
+                            ps.setString(1, d.getId());
+                            ps.setString(2, d.getWorld());
+                            ps.setInt(3, d.getX());
+                            ps.setInt(4, d.getY());
+                            ps.setInt(5, d.getZ());
+                            ps.setString(6, d.getCommand());
+                            ps.addBatch();
+                        }
+
+                        int[] counts = ps.executeBatch();
+                        List<TreasureDefinition> unknown = new ArrayList<>();
+                        for (int i = 0; i < batch.size(); i++) {
+                            int count = i < counts.length ? counts[i] : Statement.SUCCESS_NO_INFO;
+                            if (count == 0) {
+                                rejected.add(batch.get(i).getId());
+                            } else if (count > 0) {
+                                inserted++;
+                            } else {
+                                unknown.add(batch.get(i));
+                            }
+                        }
+
+                        if (!unknown.isEmpty()) {
+                            Set<String> stored = findStoredDefinitions(conn, unknown);
+                            for (TreasureDefinition d : unknown) {
+                                if (stored.contains(d.getId())) {
+                                    inserted++;
+                                } else {
+                                    rejected.add(d.getId());
+                                }
+                            }
+                        }
+                    }
+
+                    if (inserted > 0) {
+                        appendChange(conn, ChangeType.TREASURE_BULK, null, 0, null);
+                    }
+                    conn.commit();
+                    return rejected;
+                } catch (SQLException | RuntimeException ex) {
+                    conn.rollback();
+                    throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to insert new treasures", ex);
+                return null;
+            }
+        });
+    }
+
+    private Set<String> findStoredDefinitions(Connection conn, List<TreasureDefinition> batch) throws SQLException {
+        String sql = String.format("""
+                SELECT treasure_id, world, x, y, z, command FROM `%s` WHERE treasure_id IN (%s)
+                """, treasuresTable, String.join(", ", Collections.nCopies(batch.size(), "?")));
+
+        Map<String, TreasureDefinition> wanted = new HashMap<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < batch.size(); i++) {
+                TreasureDefinition d = batch.get(i);
+                wanted.put(d.getId(), d);
+                ps.setString(i + 1, d.getId());
+            }
+
+            Set<String> stored = new HashSet<>();
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    TreasureDefinition d = wanted.get(rs.getString(1));
+                    if (d != null && d.getWorld().equals(rs.getString(2)) && d.getX() == rs.getInt(3)
+                            && d.getY() == rs.getInt(4) && d.getZ() == rs.getInt(5) && Objects.equals(d.getCommand(), rs.getString(6))) {
+                        stored.add(d.getId());
+                    }
+                }
+            }
+            return stored;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteTreasure(String treasureId) {
+        String deleteTreasureSql = String.format("""
+                DELETE FROM `%s` WHERE treasure_id = ?
+                """, treasuresTable);
+
+        String deleteRedeemedSql = String.format("""
+                DELETE FROM `%s` WHERE treasure_key = (SELECT treasure_key FROM `%s` WHERE treasure_id = ?)
+                """, redeemedTable, treasuresTable);
+
+        String logDeleteSql = String.format("""
+                INSERT INTO `%s` (origin, type, treasure_id, treasure_key)
+                SELECT ?, ?, treasure_id, treasure_key FROM `%s` WHERE treasure_id = ?
+                """, changeLogTable, treasuresTable);
+
+        String selectPlayersSql = String.format("""
+                SELECT player_uuid FROM `%s` WHERE treasure_key = (SELECT treasure_key FROM `%s` WHERE treasure_id = ?)
+                """, redeemedTable, treasuresTable);
+
+        String deleteCountsSql = String.format("""
+                DELETE FROM `%s` WHERE treasure_key = (SELECT treasure_key FROM `%s` WHERE treasure_id = ?)
+                """, treasureCountsTable, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement ps1 = conn.prepareStatement(deleteRedeemedSql);
+                     PreparedStatement ps2 = conn.prepareStatement(deleteTreasureSql)) {
+                    if (changeLogEnabled) {
+                        try (PreparedStatement log = conn.prepareStatement(logDeleteSql)) {
+                            log.setString(1, nodeId);
+                            log.setInt(2, ChangeType.TREASURE_DELETE.getCode());
+                            log.setString(3, treasureId);
+                            log.executeUpdate();
+                        }
+                    }
+
+                    CountDelta delta = new CountDelta();
+                    try (PreparedStatement select = conn.prepareStatement(selectPlayersSql)) {
+                        select.setString(1, treasureId);
+                        try (ResultSet rs = select.executeQuery()) {
+                            while (rs.next()) {
+                                delta.players.merge(UuidUtils.fromBytes(rs.getBytes(1)), -1, Integer::sum);
+                            }
+                        }
+                    }
+                    applyCounts(conn, delta);
+                    try (PreparedStatement counts = conn.prepareStatement(deleteCountsSql)) {
+                        counts.setString(1, treasureId);
+                        counts.executeUpdate();
+                    }
+
+                    ps1.setString(1, treasureId);
+                    ps1.executeUpdate();
+
+                    ps2.setString(1, treasureId);
+                    int affected = ps2.executeUpdate();
+
+                    conn.commit();
+                    notifyCounts(delta);
+                    return affected;
+                } catch (SQLException ex) {
+                    try {
+                        conn.rollback();
+                    } catch (SQLException e) {
+                        plugin.getLogger().log(Level.WARNING, "Failed to rollback deleteTreasure transaction", e);
+                    }
+                    plugin.getLogger().log(Level.SEVERE, "Failed to delete treasure: " + treasureId, ex);
+                    return -1;
+                } finally {
+                    try {
+                        conn.setAutoCommit(true);
+                    } catch (SQLException ignored) {
+                    }
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to delete treasure (connection): " + treasureId, ex);
+                return -1;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<TreasureRecord>> getAllTreasures() {
+        String sql = String.format("""
+                SELECT treasure_key, treasure_id, world, x, y, z, command, updated_at FROM `%s`
+                """, treasuresTable);
+
+        return db.supplyAsync(QueryIntent.READ, () -> {
+            List<TreasureRecord> list = new ArrayList<>();
+            try (Connection conn = db.getConnection(QueryIntent.READ);
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(readTreasure(rs));
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to list treasures", ex);
+                return null;
+            }
+            return list;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<TreasureRecord>> getTreasuresChangedSince(long sinceMillis) {
+        String sql = String.format("""
+                SELECT treasure_key, treasure_id, world, x, y, z, command, updated_at FROM `%s`
+                WHERE updated_at >= ? ORDER BY updated_at
+                """, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            List<TreasureRecord> list = new ArrayList<>();
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setTimestamp(1, new Timestamp(sinceMillis));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(readTreasure(rs));
+                    }
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to list changed treasures", ex);
+            }
+            return list;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> countTreasures() {
+        String sql = String.format("""
+                SELECT COUNT(*) FROM `%s`
+                """, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to count treasures", ex);
+                return -1;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Integer>> getTreasureKeys() {
+        String sql = String.format("""
+                SELECT treasure_key FROM `%s`
+                """, treasuresTable);
+
+        return db.supplyAsync(() -> {
+            List<Integer> list = new ArrayList<>();
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(rs.getInt(1));
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to list treasure keys", ex);
+                return null;
+            }
+            return list;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<TreasureRecord>> getTreasuresByIds(Collection<String> treasureIds) {
+        if (treasureIds.isEmpty()) {
+            return CompletableFuture.completedFuture(new ArrayList<>());
+        }
+
+        String sql = String.format("""
+                SELECT treasure_key, treasure_id, world, x, y, z, command, updated_at FROM `%s`
+                WHERE treasure_id IN (%s)
+                """, treasuresTable, String.join(", ", Collections.nCopies(treasureIds.size(), "?")));
+
+        return db.supplyAsync(() -> {
+            List<TreasureRecord> list = new ArrayList<>(treasureIds.size());
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (String id : treasureIds) {
+                    ps.setString(index++, id);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        list.add(readTreasure(rs));
+                    }
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load treasures by id", ex);
+                return null;
+            }
+            return list;
+        });
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return db.isAvailable();
+    }
+
+    @Override
+    public CompletableFuture<Long> getLatestChangeId() {
+        String sql = String.format("""
+                SELECT MAX(id) FROM `%s`
+                """, changeLogTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0L;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to read latest change id", ex);
+                return 0L;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<ChangeEntry>> getChangesAfter(long afterId, int limit) {
+        String sql = String.format("""
+                SELECT id, origin, type, treasure_id, treasure_key, player_uuid, created_at, CURRENT_TIMESTAMP(3) FROM `%s`
+                WHERE id > ? ORDER BY id LIMIT ?
+                """, changeLogTable);
+
+        return db.supplyAsync(() -> {
+            List<ChangeEntry> list = new ArrayList<>(limit);
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, afterId);
+                ps.setInt(2, limit);
+                ps.setFetchSize(limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        byte[] player = rs.getBytes(6);
+                        long age = rs.getTimestamp(8).getTime() - rs.getTimestamp(7).getTime();
+                        list.add(new ChangeEntry(rs.getLong(1), rs.getString(2), ChangeType.fromCode(rs.getInt(3)),
+                                rs.getString(4), rs.getInt(5), player != null ? UuidUtils.fromBytes(player) : null, age));
+                    }
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to read change log after id " + afterId, ex);
+                return null;
+            }
+            return list;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> pruneChanges(long retentionMillis) {
+        String sql = String.format("""
+                DELETE FROM `%s` WHERE created_at < TIMESTAMPADD(SECOND, ?, CURRENT_TIMESTAMP(3))
+                """, changeLogTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setLong(1, -TimeUnit.MILLISECONDS.toSeconds(retentionMillis));
+                return ps.executeUpdate();
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.WARNING, "Failed to prune change log", ex);
+                return -1;
+            }
+        });
+    }
+
+    private <T> T withChangeLog(Connection conn, SqlWork<T> work) throws SQLException {
+        if (!changeLogEnabled) {
+            return work.run();
+        }
+        return inTransaction(conn, work);
+    }
+
+    private <T> T inTransaction(Connection conn, SqlWork<T> work) throws SQLException {
+        conn.setAutoCommit(false);
+        try {
+            T result = work.run();
+            conn.commit();
+            return result;
+        } catch (SQLException ex) {
+            conn.rollback();
+            throw ex;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private void appendChange(Connection conn, ChangeType type, String treasureId, int treasureKey, UUID player) throws SQLException {
+        if (!changeLogEnabled) {
+            return;
+        }
+
+        String sql = String.format("""
+                INSERT INTO `%s` (origin, type, treasure_id, treasure_key, player_uuid) VALUES (?, ?, ?, ?, ?)
+                """, changeLogTable);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, nodeId);
+            ps.setInt(2, type.getCode());
+            ps.setString(3, treasureId);
+            ps.setInt(4, treasureKey);
+            ps.setBytes(5, player != null ? UuidUtils.toBytes(player) : null);
+            ps.executeUpdate();
+        }
+    }
+
+    private void appendRedeemChanges(Connection conn, List<RedemptionRecord> batch) throws SQLException {
+        if (!changeLogEnabled) {
+            return;
+        }
+
+        StringBuilder sql = new StringBuilder(String.format(
+                "INSERT INTO `%s` (origin, type, treasure_key, player_uuid) VALUES ", changeLogTable));
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+        }
+
+        try (PreparedStatement ps = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (RedemptionRecord r : batch) {
+                ps.setString(index++, nodeId);
+                ps.setInt(index++, ChangeType.REDEEM_ADD.getCode());
+                ps.setInt(index++, r.getTreasureKey());
+                ps.setBytes(index++, UuidUtils.toBytes(r.getPlayer()));
+            }
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerName(UUID player, String name) {
+        String sql = String.format("""
+                INSERT INTO `%s` (player_uuid, name, updated_at) VALUES (?, ?, CURRENT_TIMESTAMP)
+                ON DUPLICATE KEY UPDATE name = VALUES(name), updated_at = VALUES(updated_at)
+                """, playersTable);
+
+        return db.runAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setBytes(1, UuidUtils.toBytes(player));
+                ps.setString(2, name);
+                ps.executeUpdate();
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.WARNING, "Failed to save player name " + name, ex);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, String>> getPlayerNames(Collection<UUID> players) {
+        if (players.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        String sql = String.format("SELECT player_uuid, name FROM `%s` WHERE player_uuid IN (%s)",
+                playersTable, String.join(", ", Collections.nCopies(players.size(), "?")));
+
+        return db.supplyAsync(QueryIntent.READ, () -> {
+            Map<UUID, String> names = new HashMap<>();
+            try (Connection conn = db.getConnection(QueryIntent.READ);
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = 1;
+                for (UUID player : players) {
+                    ps.setBytes(index++, UuidUtils.toBytes(player));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        names.put(UuidUtils.fromBytes(rs.getBytes(1)), rs.getString(2));
+                    }
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.WARNING, "Failed to load " + players.size() + " player names", ex);
+            }
+            return names;
+        });
+    }
+
+    @Override
+    public void setCountListener(RedemptionCountListener listener) {
+        this.countListener = listener;
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Integer>> getPlayerCounts(Collection<UUID> players) {
+        if (players != null && players.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        String sql = String.format("SELECT player_uuid, found FROM `%s` WHERE found > 0%s", playerCountsTable,
+                players != null ? " AND player_uuid IN (" + String.join(", ", Collections.nCopies(players.size(), "?")) + ")" : "");
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                if (players != null) {
+                    int index = 1;
+                    for (UUID player : players) {
+                        ps.setBytes(index++, UuidUtils.toBytes(player));
+                    }
+                }
+                ps.setFetchSize(1000);
+
+                Map<UUID, Integer> counts = new HashMap<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        counts.put(UuidUtils.fromBytes(rs.getBytes(1)), rs.getInt(2));
+                    }
+                }
+                return counts;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load player counters", ex);
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<Integer, Integer>> getTreasureCounts(Collection<Integer> treasureKeys) {
+        if (treasureKeys != null && treasureKeys.isEmpty()) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+
+        String sql = String.format("SELECT treasure_key, claims FROM `%s` WHERE claims > 0%s", treasureCountsTable,
+                treasureKeys != null ? " AND treasure_key IN (" + String.join(", ", Collections.nCopies(treasureKeys.size(), "?")) + ")" : "");
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                if (treasureKeys != null) {
+                    int index = 1;
+                    for (int key : treasureKeys) {
+                        ps.setInt(index++, key);
+                    }
+                }
+
+                Map<Integer, Integer> counts = new HashMap<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        counts.put(rs.getInt(1), rs.getInt(2));
+                    }
+                }
+                return counts;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to load treasure counters", ex);
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> rebuildCounts() {
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection()) {
+                return inTransaction(conn, () -> {
+                    int players = rebuildCounts(conn);
+                    appendChange(conn, ChangeType.COUNTS_REBUILD, null, 0, null);
+                    return players;
+                });
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to rebuild redemption counters", ex);
+                throw new CompletionException(ex);
+            }
+        });
+    }
+
+    private int rebuildCounts(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate(String.format("DELETE FROM `%s`", playerCountsTable));
+            stmt.executeUpdate(String.format("DELETE FROM `%s`", treasureCountsTable));
+            stmt.executeUpdate(String.format("""
+                    INSERT INTO `%s` (treasure_key, claims)
+                    SELECT treasure_key, COUNT(*) FROM `%s` GROUP BY treasure_key
+                    """, treasureCountsTable, redeemedTable));
+            return stmt.executeUpdate(String.format("""
+                    INSERT INTO `%s` (player_uuid, found)
+                    SELECT player_uuid, COUNT(*) FROM `%s` GROUP BY player_uuid
+                    """, playerCountsTable, redeemedTable));
+        }
+    }
+
+    private void applyCounts(Connection conn, CountDelta delta) throws SQLException {
+        String playerSql = String.format("""
+                INSERT INTO `%s` (player_uuid, found) VALUES (?, GREATEST(?, 0))
+                ON DUPLICATE KEY UPDATE found = GREATEST(found + ?, 0)
+                """, playerCountsTable);
+
+        String treasureSql = String.format("""
+                INSERT INTO `%s` (treasure_key, claims) VALUES (?, GREATEST(?, 0))
+                ON DUPLICATE KEY UPDATE claims = GREATEST(claims + ?, 0)
+                """, treasureCountsTable);
+
+        if (!delta.players.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(playerSql)) {
+                for (Map.Entry<UUID, Integer> e : delta.players.entrySet()) {
+                    ps.setBytes(1, UuidUtils.toBytes(e.getKey()));
+                    ps.setInt(2, e.getValue());
+                    ps.setInt(3, e.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+
+        if (!delta.treasures.isEmpty()) {
+            try (PreparedStatement ps = conn.prepareStatement(treasureSql)) {
+                for (Map.Entry<Integer, Integer> e : delta.treasures.entrySet()) {
+                    ps.setInt(1, e.getKey());
+                    ps.setInt(2, e.getValue());
+                    ps.setInt(3, e.getValue());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        }
+    }
+
+    private void applyDeletedCounts(Connection conn, CountDelta delta, boolean exact) throws SQLException {
+        if (exact) {
+            applyCounts(conn, delta);
+            return;
+        }
+        recountPlayers(conn, delta.players.keySet());
+        recountTreasures(conn, delta.treasures.keySet());
+    }
+
+    private void recountPlayers(Connection conn, Collection<UUID> players) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(players.size(), "?"));
+        String deleteSql = String.format("DELETE FROM `%s` WHERE player_uuid IN (%s)", playerCountsTable, placeholders);
+        String insertSql = String.format("""
+                INSERT INTO `%s` (player_uuid, found)
+                SELECT player_uuid, COUNT(*) FROM `%s` WHERE player_uuid IN (%s) GROUP BY player_uuid
+                """, playerCountsTable, redeemedTable, placeholders);
+
+        try (PreparedStatement delete = conn.prepareStatement(deleteSql);
+             PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            int index = 1;
+            for (UUID player : players) {
+                byte[] bytes = UuidUtils.toBytes(player);
+                delete.setBytes(index, bytes);
+                insert.setBytes(index++, bytes);
+            }
+            delete.executeUpdate();
+            insert.executeUpdate();
+        }
+    }
+
+    private void recountTreasures(Connection conn, Collection<Integer> treasureKeys) throws SQLException {
+        String placeholders = String.join(", ", Collections.nCopies(treasureKeys.size(), "?"));
+        String deleteSql = String.format("DELETE FROM `%s` WHERE treasure_key IN (%s)", treasureCountsTable, placeholders);
+        String insertSql = String.format("""
+                INSERT INTO `%s` (treasure_key, claims)
+                SELECT treasure_key, COUNT(*) FROM `%s` WHERE treasure_key IN (%s) GROUP BY treasure_key
+                """, treasureCountsTable, redeemedTable, placeholders);
+
+        try (PreparedStatement delete = conn.prepareStatement(deleteSql);
+             PreparedStatement insert = conn.prepareStatement(insertSql)) {
+            int index = 1;
+            for (int key : treasureKeys) {
+                delete.setInt(index, key);
+                insert.setInt(index++, key);
+            }
+            delete.executeUpdate();
+            insert.executeUpdate();
+        }
+    }
+
+    private void notifyCounts(CountDelta delta) {
+        RedemptionCountListener listener = countListener;
+        if (listener != null) {
+            listener.countsChanged(delta.players, delta.treasures);
+        }
+    }
+
+    private void notifyCountsStale(Collection<UUID> players, Collection<Integer> treasureKeys) {
+        RedemptionCountListener listener = countListener;
+        if (listener != null) {
+            listener.countsStale(players, treasureKeys);
+        }
+    }
+
+    private void notifyDeletedCounts(CountDelta delta, boolean exact) {
+        if (exact) {
+            notifyCounts(delta);
+        } else {
+            notifyCountsStale(delta.players.keySet(), delta.treasures.keySet());
+        }
+    }
+
+    private TreasureRecord readTreasure(ResultSet rs) throws SQLException {
+        int key = rs.getInt(1);
+        String id = rs.getString(2);
+        String world = rs.getString(3);
+        int x = rs.getInt(4);
+        int y = rs.getInt(5);
+        int z = rs.getInt(6);
+        String command = rs.getString(7);
+        long updatedAt = rs.getTimestamp(8).getTime();
+        return new TreasureRecord(key, id, world, x, y, z, command, updatedAt);
+    }
+
+    @Override
+    public CompletableFuture<RedemptionPage> getPlayersRedeemed(int treasureKey, PageCursor after, int skip, int limit, boolean archived) {
+        return getRedeemedPage(archived ? archiveTable : redeemedTable, "treasure_key", treasureKey, null, after, skip, limit);
+    }
+
+    @Override
+    public CompletableFuture<RedemptionPage> getRedeemedHistory(UUID player, PageCursor after, int skip, int limit, boolean archived) {
+        return getRedeemedPage(archived ? archiveTable : redeemedTable, "player_uuid", 0, UuidUtils.toBytes(player), after, skip, limit);
+    }
+
+    private CompletableFuture<RedemptionPage> getRedeemedPage(String table, String column, int treasureKey, byte[] player,
+                                                              PageCursor after, int skip, int limit) {
+        boolean withNames = player == null;
+        String sql = String.format("""
+                SELECT r.id, r.player_uuid, r.treasure_key, r.redeemed_at, %s FROM `%s` r%s
+                WHERE r.%s = ?%s
+                ORDER BY r.redeemed_at, r.id
+                LIMIT ? OFFSET ?
+                """, withNames ? "p.name" : "NULL", table,
+                withNames ? String.format(" LEFT JOIN `%s` p ON p.player_uuid = r.player_uuid", playersTable) : "",
+                column, after != null ? " AND (r.redeemed_at > ? OR (r.redeemed_at = ? AND r.id > ?))" : "");
+
+        return db.supplyAsync(QueryIntent.READ, () -> {
+            List<RedemptionRecord> list = new ArrayList<>(limit);
+            Map<UUID, String> names = new HashMap<>();
+            long lastId = 0;
+            long lastAt = 0;
+            boolean hasMore = false;
+            try (Connection conn = db.getConnection(QueryIntent.READ);
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                int index = 1;
+                if (player != null) {
+                    ps.setBytes(index++, player);
+                } else {
+                    ps.setInt(index++, treasureKey);
+                }
+                if (after != null) {
+                    Timestamp at = new Timestamp(after.getRedeemedAt());
+                    ps.setTimestamp(index++, at);
+                    ps.setTimestamp(index++, at);
+                    ps.setLong(index++, after.getId());
+                }
+                ps.setInt(index++, limit + 1);
+                ps.setInt(index, Math.max(0, skip));
+                ps.setFetchSize(limit + 1);
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        if (list.size() == limit) {
+                            hasMore = true;
+                            break;
+                        }
+                        lastId = rs.getLong(1);
+                        lastAt = rs.getTimestamp(4).getTime();
+                        UUID uuid = UuidUtils.fromBytes(rs.getBytes(2));
+                        String name = rs.getString(5);
+                        if (name != null) {
+                            names.put(uuid, name);
+                        }
+                        list.add(new RedemptionRecord(uuid, rs.getInt(3), lastAt));
+                    }
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to page " + table + " records by " + column, ex);
+                return RedemptionPage.empty();
+            }
+            return new RedemptionPage(list, list.isEmpty() ? after : new PageCursor(lastAt, lastId), hasMore, names);
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<Season>> getSeasons() {
+        String sql = String.format("""
+                SELECT id, name, started_at, closed_at, archived_at FROM `%s` ORDER BY id
+                """, seasonsTable);
+
+        return db.supplyAsync(QueryIntent.READ, () -> {
+            List<Season> list = new ArrayList<>();
+            try (Connection conn = db.getConnection(QueryIntent.READ);
+                 PreparedStatement ps = conn.prepareStatement(sql);
+                 ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(readSeason(rs));
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to list seasons", ex);
+            }
+            return list;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Season> startSeason(String name) {
+        String closeSql = String.format("""
+                UPDATE `%s` SET closed_at = CURRENT_TIMESTAMP(3) WHERE closed_at IS NULL
+                """, seasonsTable);
+
+        String insertSql = String.format("""
+                INSERT INTO `%s` (name, started_at) VALUES (?, CURRENT_TIMESTAMP(3))
+                """, seasonsTable);
+
+        String selectSql = String.format("""
+                SELECT id, name, started_at, closed_at, archived_at FROM `%s` WHERE name = ?
+                """, seasonsTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement close = conn.prepareStatement(closeSql);
+                     PreparedStatement insert = conn.prepareStatement(insertSql);
+                     PreparedStatement select = conn.prepareStatement(selectSql)) {
+                    close.executeUpdate();
+                    insert.setString(1, name);
+                    insert.executeUpdate();
+
+                    select.setString(1, name);
+                    Season season;
+                    try (ResultSet rs = select.executeQuery()) {
+                        season = rs.next() ? readSeason(rs) : null;
+                    }
+                    conn.commit();
+                    return season;
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to start season " + name, ex);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> closeSeason() {
+        String sql = String.format("""
+                UPDATE `%s` SET closed_at = CURRENT_TIMESTAMP(3) WHERE closed_at IS NULL
+                """, seasonsTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                return ps.executeUpdate() > 0;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to close season", ex);
+                return false;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> markSeasonArchived(int seasonId) {
+        String sql = String.format("""
+                UPDATE `%s` SET archived_at = CURRENT_TIMESTAMP(3) WHERE id = ?
+                """, seasonsTable);
+
+        return db.supplyAsync(() -> {
+            try (Connection conn = db.getConnection();
+                 PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, seasonId);
+                return ps.executeUpdate() > 0;
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to mark season " + seasonId + " archived", ex);
+                return false;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<RedemptionPage> archiveRedeemedChunk(long fromMillis, long toMillis, int seasonId, PageCursor after, int limit) {
+        String selectSql = String.format("""
+                SELECT id, player_uuid, treasure_key, redeemed_at FROM `%s`
+                WHERE id > ? AND redeemed_at >= ? AND redeemed_at < ?
+                ORDER BY id LIMIT ?
+                """, redeemedTable);
+
+        return db.supplyAsync(() -> {
+            List<RedemptionRecord> list = new ArrayList<>(limit);
+            List<Long> ids = new ArrayList<>(limit);
+            long lastAt = 0;
+            try (Connection conn = db.getConnection()) {
+                try (PreparedStatement ps = conn.prepareStatement(selectSql)) {
+                    ps.setLong(1, after != null ? after.getId() : 0L);
+                    ps.setTimestamp(2, new Timestamp(fromMillis));
+                    ps.setTimestamp(3, new Timestamp(toMillis));
+                    ps.setInt(4, limit);
+                    ps.setFetchSize(limit);
+
+                    try (ResultSet rs = ps.executeQuery()) {
+                        while (rs.next()) {
+                            ids.add(rs.getLong(1));
+                            lastAt = rs.getTimestamp(4).getTime();
+                            list.add(new RedemptionRecord(UuidUtils.fromBytes(rs.getBytes(2)), rs.getInt(3), lastAt));
+                        }
+                    }
+                }
+
+                if (ids.isEmpty()) {
+                    return RedemptionPage.empty();
+                }
+
+                String placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+                String copySql = String.format("""
+                        INSERT INTO `%s` (id, season_id, player_uuid, treasure_key, redeemed_at)
+                        SELECT id, ?, player_uuid, treasure_key, redeemed_at FROM `%s` WHERE id IN (%s)
+                        """, archiveTable, redeemedTable, placeholders);
+                String deleteSql = String.format("""
+                        DELETE FROM `%s` WHERE id IN (%s)
+                        """, redeemedTable, placeholders);
+
+                CountDelta delta = CountDelta.of(list, -1);
+                boolean exact;
+                conn.setAutoCommit(false);
+                try (PreparedStatement copy = conn.prepareStatement(copySql);
+                     PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+                    if (seasonId > 0) {
+                        copy.setInt(1, seasonId);
+                    } else {
+                        copy.setNull(1, Types.INTEGER);
+                    }
+                    for (int i = 0; i < ids.size(); i++) {
+                        copy.setLong(i + 2, ids.get(i));
+                        delete.setLong(i + 1, ids.get(i));
+                    }
+                    int copied = copy.executeUpdate();
+                    if (copied != ids.size()) {
+                        throw new SQLException("Archived " + copied + " of " + ids.size() + " redemptions, refusing to delete the chunk");
+                    }
+                    exact = delete.executeUpdate() == ids.size();
+                    applyDeletedCounts(conn, delta, exact);
+                    conn.commit();
+                } catch (SQLException ex) {
+                    conn.rollback();
+                    throw ex;
+                } finally {
+                    conn.setAutoCommit(true);
+                }
+                notifyDeletedCounts(delta, exact);
+            } catch (SQLException ex) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to archive chunk of redeemed records", ex);
+                return null;
+            }
+
+            return new RedemptionPage(list, new PageCursor(lastAt, ids.get(ids.size() - 1)), list.size() == limit);
+        });
+    }
+
+    private Season readSeason(ResultSet rs) throws SQLException {
+        Timestamp closed = rs.getTimestamp(4);
+        Timestamp archived = rs.getTimestamp(5);
+        return new Season(rs.getInt(1), rs.getString(2), rs.getTimestamp(3).getTime(),
+                closed != null ? closed.getTime() : 0L, archived != null ? archived.getTime() : 0L);
+    }
+
+    private List<Integer> getLegacyRedeemed(Connection conn, UUID player) throws SQLException {
+        String sql = String.format("""
+                SELECT t.treasure_key FROM `%s` r
+                JOIN `%s` t ON t.treasure_id = r.treasure_id
+                WHERE r.player_uuid = ?
+                """, legacyRedeemedTable, treasuresTable);
+
+        List<Integer> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, player.toString());
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    list.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException ex) {
+            if (legacyPresent) {
+                throw ex;
+            }
+        }
+        return list;
+    }
+
+    @FunctionalInterface
+    private interface SqlWork<T> {
+        T run() throws SQLException;
+    }
+
+    private static final class CountDelta {
+        final Map<UUID, Integer> players = new TreeMap<>();
+        final Map<Integer, Integer> treasures = new TreeMap<>();
+
+        static CountDelta of(List<RedemptionRecord> records, int amount) {
+            CountDelta delta = new CountDelta();
+            for (RedemptionRecord r : records) {
+                delta.add(r.getPlayer(), r.getTreasureKey(), amount);
+            }
+            return delta;
+        }
+
+        void add(UUID player, int treasureKey, int amount) {
+            players.merge(player, amount, Integer::sum);
+            treasures.merge(treasureKey, amount, Integer::sum);
+        }
+    }
 }
@@ -0,0 +1,107 @@
+package it.dominick.th.repository;
+
+import it.dominick.th.model.ChangeEntry;
+import it.dominick.th.model.ClaimResult;
+import it.dominick.th.model.PageCursor;
+import it.dominick.th.model.RedemptionPage;
+import it.dominick.th.model.RedemptionRecord;
+import it.dominick.th.model.ResetScope;
+import it.dominick.th.model.Season;
+import it.dominick.th.model.TreasureDefinition;
+import it.dominick.th.model.TreasureRecord;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+public interface TreasureStorage {
+
+    CompletableFuture<Void> createTableIfNotExists();
+
+    CompletableFuture<Void> createTreasuresTableIfNotExists();
+
+    CompletableFuture<ClaimResult> addRedeemed(UUID player, int treasureKey);
+
+    CompletableFuture<Integer> addRedeemedBatch(List<RedemptionRecord> batch);
+
+    CompletableFuture<Integer> flushClaimCounts();
+
+    int getPendingClaimCounts();
+
+    CompletableFuture<Boolean> removeRedeemed(UUID player, int treasureKey);
+
+    CompletableFuture<Boolean> addPendingReward(UUID player, TreasureDefinition treasure);
+
+    CompletableFuture<List<TreasureDefinition>> takePendingRewards(UUID player);
+
+    CompletableFuture<RedemptionPage> deleteRedeemedChunk(ResetScope scope, int treasureKey, UUID player, PageCursor after, int limit);
+
+    CompletableFuture<Boolean> appendRedemptionsReset();
+
+    CompletableFuture<Boolean> isRedeemed(UUID player, int treasureKey);
+
+    CompletableFuture<List<Integer>> getRedeemedForPlayer(UUID player);
+
+    CompletableFuture<RedemptionPage> getRedeemedChunk(PageCursor after, int limit);
+
+    boolean isLegacyMigrationPending();
+
+    CompletableFuture<Void> savePlayerName(UUID player, String name);
+
+    CompletableFuture<Map<UUID, String>> getPlayerNames(Collection<UUID> players);
+
+    void setCountListener(RedemptionCountListener listener);
+
+    CompletableFuture<Map<UUID, Integer>> getPlayerCounts(Collection<UUID> players);
+
+    CompletableFuture<Map<Integer, Integer>> getTreasureCounts(Collection<Integer> treasureKeys);
+
+    CompletableFuture<Integer> rebuildCounts();
+
+    CompletableFuture<TreasureRecord> insertTreasure(String treasureId, String world, int x, int y, int z, String command);
+
+    CompletableFuture<Integer> insertTreasures(Iterator<TreasureDefinition> source, int batchSize);
+
+    CompletableFuture<List<String>> insertNewTreasures(List<TreasureDefinition> definitions, int batchSize);
+
+    CompletableFuture<Integer> deleteTreasure(String treasureId);
+
+    CompletableFuture<List<TreasureRecord>> getAllTreasures();
+
+    CompletableFuture<List<TreasureRecord>> getTreasuresChangedSince(long sinceMillis);
+
+    CompletableFuture<Integer> countTreasures();
+
+    CompletableFuture<List<Integer>> getTreasureKeys();
+
+    CompletableFuture<List<TreasureRecord>> getTreasuresByIds(Collection<String> treasureIds);
+
+    boolean isAvailable();
+
+    String getNodeId();
+
+    boolean isChangeLogEnabled();
+
+    CompletableFuture<Long> getLatestChangeId();
+
+    CompletableFuture<List<ChangeEntry>> getChangesAfter(long afterId, int limit);
+
+    CompletableFuture<Integer> pruneChanges(long retentionMillis);
+
+    CompletableFuture<RedemptionPage> getPlayersRedeemed(int treasureKey, PageCursor after, int skip, int limit, boolean archived);
+
+    CompletableFuture<RedemptionPage> getRedeemedHistory(UUID player, PageCursor after, int skip, int limit, boolean archived);
+
+    CompletableFuture<List<Season>> getSeasons();
+
+    CompletableFuture<Season> startSeason(String name);
+
+    CompletableFuture<Boolean> closeSeason();
+
+    CompletableFuture<Boolean> markSeasonArchived(int seasonId);
+
+    CompletableFuture<RedemptionPage> archiveRedeemedChunk(long fromMillis, long toMillis, int seasonId, PageCursor after, int limit);
+}
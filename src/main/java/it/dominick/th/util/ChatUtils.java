@@ -9,6 +9,9 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -18,6 +21,8 @@ public class ChatUtils {
     private static final MiniMessage MINI_MESSAGE = MiniMessage.miniMessage();
     private static final LegacyComponentSerializer LEGACY_SERIALIZER =
             LegacyComponentSerializer.legacyAmpersand();
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
 
     public static void send(@NotNull Player player, @NotNull String message, @NotNull String... placeholders) {
         Component component = parse(message, placeholders);
@@ -183,6 +188,10 @@ public class ChatUtils {
     }
 
 
+    public static String formatDate(long millis) {
+        return DATE_FORMAT.format(Instant.ofEpochMilli(millis));
+    }
+
     public static String stripColors(@NotNull String message) {
         String converted = convertLegacyToMiniMessage(message);
         return MINI_MESSAGE.stripTags(converted);
@@ -0,0 +1,246 @@
+package it.dominick.th.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.ToIntFunction;
+
+public class KdTree<T> {
+
+    private final Object[] values;
+    private final int[] coords;
+
+    public KdTree(Collection<? extends T> items, ToIntFunction<? super T> x, ToIntFunction<? super T> y, ToIntFunction<? super T> z) {
+        this.values = new Object[items.size()];
+        this.coords = new int[items.size() * 3];
+
+        int i = 0;
+        for (T item : items) {
+            values[i] = item;
+            coords[i * 3] = x.applyAsInt(item);
+            coords[i * 3 + 1] = y.applyAsInt(item);
+            coords[i * 3 + 2] = z.applyAsInt(item);
+            i++;
+        }
+        build(0, values.length, 0);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super T> action) {
+        for (Object value : values) {
+            action.accept((T) value);
+        }
+    }
+
+    public void nearest(double x, double y, double z, Neighbors<T> out, Predicate<? super T> skip) {
+        nearest(0, values.length, 0, x, y, z, out, skip);
+    }
+
+    public void within(double x, double y, double z, double radius, Predicate<? super T> skip, Consumer<? super T> out) {
+        within(0, values.length, 0, x, y, z, radius * radius, skip, out);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void nearest(int lo, int hi, int axis, double x, double y, double z, Neighbors<T> out, Predicate<? super T> skip) {
+        if (lo >= hi) {
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        double distance = distanceSquared(mid, x, y, z);
+        if (distance <= out.bound()) {
+            T value = (T) values[mid];
+            if (skip == null || !skip.test(value)) {
+                out.offer(value, distance);
+            }
+        }
+
+        double diff = axis(axis, x, y, z) - coords[mid * 3 + axis];
+        int next = axis == 2 ? 0 : axis + 1;
+        if (diff < 0) {
+            nearest(lo, mid, next, x, y, z, out, skip);
+            if (diff * diff <= out.bound()) {
+                nearest(mid + 1, hi, next, x, y, z, out, skip);
+            }
+        } else {
+            nearest(mid + 1, hi, next, x, y, z, out, skip);
+            if (diff * diff <= out.bound()) {
+                nearest(lo, mid, next, x, y, z, out, skip);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void within(int lo, int hi, int axis, double x, double y, double z, double radiusSq, Predicate<? super T> skip, Consumer<? super T> out) {
+        if (lo >= hi) {
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        if (distanceSquared(mid, x, y, z) <= radiusSq) {
+            T value = (T) values[mid];
+            if (skip == null || !skip.test(value)) {
+                out.accept(value);
+            }
+        }
+
+        double diff = axis(axis, x, y, z) - coords[mid * 3 + axis];
+        int next = axis == 2 ? 0 : axis + 1;
+        if (diff < 0 || diff * diff <= radiusSq) {
+            within(lo, mid, next, x, y, z, radiusSq, skip, out);
+        }
+        if (diff >= 0 || diff * diff <= radiusSq) {
+            within(mid + 1, hi, next, x, y, z, radiusSq, skip, out);
+        }
+    }
+
+    private double distanceSquared(int i, double x, double y, double z) {
+        double dx = coords[i * 3] - x;
+        double dy = coords[i * 3 + 1] - y;
+        double dz = coords[i * 3 + 2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double axis(int axis, double x, double y, double z) {
+        return axis == 0 ? x : axis == 1 ? y : z;
+    }
+
+    private void build(int lo, int hi, int axis) {
+        if (hi - lo <= 1) {
+            return;
+        }
+
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, axis);
+        int next = axis == 2 ? 0 : axis + 1;
+        build(lo, mid, next);
+        build(mid + 1, hi, next);
+    }
+
+    private void select(int lo, int hi, int k, int axis) {
+        while (hi > lo) {
+            int pivot = coords[((lo + hi) >>> 1) * 3 + axis];
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (coords[i * 3 + axis] < pivot) i++;
+                while (coords[j * 3 + axis] > pivot) j--;
+                if (i <= j) {
+                    swap(i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(int a, int b) {
+        Object value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+        for (int i = 0; i < 3; i++) {
+            int c = coords[a * 3 + i];
+            coords[a * 3 + i] = coords[b * 3 + i];
+            coords[b * 3 + i] = c;
+        }
+    }
+
+    public static class Neighbors<T> {
+        private final int k;
+        private final double maxDistanceSq;
+        private final double[] distances;
+        private final Object[] items;
+        private int size;
+
+        public Neighbors(int k, double maxDistance) {
+            this.k = Math.max(1, k);
+            this.maxDistanceSq = maxDistance * maxDistance;
+            this.distances = new double[this.k];
+            this.items = new Object[this.k];
+        }
+
+        public double bound() {
+            return size < k ? maxDistanceSq : distances[0];
+        }
+
+        public void offer(T item, double distanceSq) {
+            if (distanceSq > maxDistanceSq) {
+                return;
+            }
+            if (size < k) {
+                distances[size] = distanceSq;
+                items[size] = item;
+                siftUp(size++);
+            } else if (distanceSq < distances[0]) {
+                distances[0] = distanceSq;
+                items[0] = item;
+                siftDown(0);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        public List<T> toSortedList() {
+            Object[] sorted = new Object[size];
+            while (size > 0) {
+                sorted[size - 1] = items[0];
+                size--;
+                distances[0] = distances[size];
+                items[0] = items[size];
+                items[size] = null;
+                siftDown(0);
+            }
+
+            List<T> list = new ArrayList<>(sorted.length);
+            for (Object item : sorted) {
+                list.add((T) item);
+            }
+            return list;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (distances[parent] >= distances[i]) {
+                    return;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int largest = i;
+                int left = i * 2 + 1;
+                int right = left + 1;
+                if (left < size && distances[left] > distances[largest]) largest = left;
+                if (right < size && distances[right] > distances[largest]) largest = right;
+                if (largest == i) {
+                    return;
+                }
+                swap(i, largest);
+                i = largest;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double d = distances[a];
+            distances[a] = distances[b];
+            distances[b] = d;
+            Object item = items[a];
+            items[a] = items[b];
+            items[b] = item;
+        }
+    }
+}
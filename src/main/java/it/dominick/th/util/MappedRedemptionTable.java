@@ -0,0 +1,560 @@
+package it.dominick.th.util;
+
+import lombok.Getter;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+
+public class MappedRedemptionTable {
+
+    public static final int UNKNOWN = -1;
+    public static final int ABSENT = 0;
+    public static final int PRESENT = 1;
+
+    private static final int MAGIC = 0x54485232;
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_BYTES = 64;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int BITS_OFFSET = 12;
+    private static final int SIZE_OFFSET = 16;
+    private static final int FLAGS_OFFSET = 20;
+    private static final int FLAG_COMPLETE = 1;
+    private static final int FLAG_OPEN = 2;
+    private static final int FLAG_OVERFLOW = 4;
+    private static final float LOAD_FACTOR = 0.75f;
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+
+    private final StampedLock lock = new StampedLock();
+    @Getter
+    private final int bits;
+    private final int recordBytes;
+    private final int words;
+    private final int dataOffset;
+    private final int[] keysByOrdinal;
+    private final Map<Integer, Integer> ordinals = new ConcurrentHashMap<>();
+
+    @Getter
+    private Path path;
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer keySlots;
+    private volatile Region region;
+    @Getter
+    private volatile int size;
+    @Getter
+    private volatile boolean complete;
+    @Getter
+    private volatile boolean overflowed;
+    private volatile boolean closed;
+
+    private MappedRedemptionTable(Path path, int bits) {
+        this.path = path;
+        this.bits = bits;
+        this.words = bits >>> 6;
+        this.recordBytes = 16 + words * 8;
+        this.dataOffset = HEADER_BYTES + bits * 4;
+        this.keysByOrdinal = new int[bits];
+    }
+
+    public static MappedRedemptionTable open(Path path, int maxKeys, int initialCapacity) throws IOException {
+        MappedRedemptionTable table = new MappedRedemptionTable(path, roundBits(maxKeys));
+        table.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        table.header = table.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+
+        if (!table.attach()) {
+            table.channel.truncate(HEADER_BYTES);
+            table.keySlots = table.mapKeySlots(table.channel);
+            table.region = table.map(table.channel, tableSizeFor(initialCapacity));
+            table.wipe();
+        }
+
+        table.writeFlags(true);
+        return table;
+    }
+
+    public static MappedRedemptionTable create(Path path, int maxKeys, int initialCapacity) throws IOException {
+        Files.deleteIfExists(path);
+        return open(path, maxKeys, initialCapacity);
+    }
+
+    public int state(long msb, long lsb, int key) {
+        if (key < 0 || (msb == 0 && lsb == 0) || closed) {
+            return UNKNOWN;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        int result = lookup(region, msb, lsb, key);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                result = lookup(region, msb, lsb, key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return result;
+    }
+
+    public int[] keys(long msb, long lsb) {
+        long stamp = lock.readLock();
+        try {
+            if (closed || overflowed) {
+                return null;
+            }
+
+            Region r = region;
+            int slot = find(r, msb, lsb);
+            if (slot < 0) {
+                return complete ? new int[0] : null;
+            }
+
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(word(r, slot, w));
+            }
+            int[] out = new int[count];
+            int i = 0;
+            for (int w = 0; w < words; w++) {
+                long value = word(r, slot, w);
+                while (value != 0) {
+                    out[i++] = keysByOrdinal[(w << 6) + Long.numberOfTrailingZeros(value)] - 1;
+                    value &= value - 1;
+                }
+            }
+            return out;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean set(long msb, long lsb, int key, boolean present) {
+        if (key < 0 || (msb == 0 && lsb == 0)) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if (closed) {
+                return false;
+            }
+
+            int ordinal = present ? assignOrdinal(key) : ordinals.getOrDefault(key, -1);
+            if (ordinal < 0) {
+                return !present;
+            }
+
+            Region r = region;
+            int slot = find(r, msb, lsb);
+            if (slot < 0) {
+                if (!present) {
+                    return true;
+                }
+                slot = insert(msb, lsb);
+                r = region;
+            }
+
+            long value = word(r, slot, ordinal >>> 6);
+            long mask = 1L << ordinal;
+            putWord(r, slot, ordinal >>> 6, present ? value | mask : value & ~mask);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean put(long msb, long lsb, Collection<Integer> keys) {
+        if (msb == 0 && lsb == 0) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            if (closed) {
+                return false;
+            }
+
+            Region r = region;
+            int slot = find(r, msb, lsb);
+            if (slot < 0) {
+                slot = insert(msb, lsb);
+                r = region;
+            }
+
+            for (int w = 0; w < words; w++) {
+                putWord(r, slot, w, 0L);
+            }
+            boolean tracked = true;
+            for (int key : keys) {
+                int ordinal = key >= 0 ? assignOrdinal(key) : -1;
+                if (ordinal < 0) {
+                    tracked = false;
+                    continue;
+                }
+                putWord(r, slot, ordinal >>> 6, word(r, slot, ordinal >>> 6) | (1L << ordinal));
+            }
+            return tracked;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void remove(long msb, long lsb) {
+        long stamp = lock.writeLock();
+        try {
+            Region r = region;
+            int slot = closed ? -1 : find(r, msb, lsb);
+            if (slot >= 0) {
+                shiftRecords(r, slot);
+                header.putInt(SIZE_OFFSET, --size);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clearKey(int key) {
+        long stamp = lock.writeLock();
+        try {
+            Integer ordinal = closed ? null : ordinals.get(key);
+            if (ordinal == null) {
+                return;
+            }
+
+            Region r = region;
+            long mask = ~(1L << ordinal);
+            for (int slot = 0; slot <= r.mask; slot++) {
+                if (!isEmpty(r, slot)) {
+                    putWord(r, slot, ordinal >>> 6, word(r, slot, ordinal >>> 6) & mask);
+                }
+            }
+            ordinals.remove(key);
+            keysByOrdinal[ordinal] = 0;
+            keySlots.putInt(ordinal << 2, 0);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            if (!closed) {
+                wipe();
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void setComplete(boolean complete) {
+        long stamp = lock.writeLock();
+        try {
+            this.complete = complete;
+            if (!closed) {
+                writeFlags(true);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void moveTo(Path target) throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            Files.move(path, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            path = target;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void close() throws IOException {
+        long stamp = lock.writeLock();
+        try {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+            keySlots.force();
+            for (MappedByteBuffer segment : region.segments) {
+                segment.force();
+            }
+            writeFlags(false);
+            channel.close();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean attach() throws IOException {
+        if (channel.size() < HEADER_BYTES || header.getInt(0) != MAGIC || header.getInt(4) != FORMAT_VERSION
+                || header.getInt(BITS_OFFSET) != bits) {
+            return false;
+        }
+
+        int capacity = header.getInt(CAPACITY_OFFSET);
+        int flags = header.getInt(FLAGS_OFFSET);
+        if (Integer.bitCount(capacity) != 1 || channel.size() != dataOffset + (long) capacity * recordBytes) {
+            return false;
+        }
+
+        keySlots = mapKeySlots(channel);
+        region = map(channel, capacity);
+        if ((flags & FLAG_OPEN) != 0) {
+            wipe();
+            return true;
+        }
+
+        for (int ordinal = 0; ordinal < bits; ordinal++) {
+            int stored = keySlots.getInt(ordinal << 2);
+            if (stored != 0) {
+                keysByOrdinal[ordinal] = stored;
+                ordinals.put(stored - 1, ordinal);
+            }
+        }
+        size = header.getInt(SIZE_OFFSET);
+        complete = (flags & FLAG_COMPLETE) != 0;
+        overflowed = (flags & FLAG_OVERFLOW) != 0;
+        return true;
+    }
+
+    private void wipe() {
+        for (int offset = 0; offset < keySlots.capacity(); offset += 4) {
+            keySlots.putInt(offset, 0);
+        }
+        ordinals.clear();
+        Arrays.fill(keysByOrdinal, 0);
+        overflowed = false;
+
+        Region r = region;
+        for (MappedByteBuffer segment : r.segments) {
+            for (int offset = 0; offset < segment.capacity(); offset += 8) {
+                segment.putLong(offset, 0L);
+            }
+        }
+        size = 0;
+        complete = false;
+        header.putInt(0, MAGIC);
+        header.putInt(4, FORMAT_VERSION);
+        header.putInt(CAPACITY_OFFSET, r.mask + 1);
+        header.putInt(BITS_OFFSET, bits);
+        header.putInt(SIZE_OFFSET, 0);
+    }
+
+    private void writeFlags(boolean open) {
+        header.putInt(FLAGS_OFFSET, (complete ? FLAG_COMPLETE : 0) | (open ? FLAG_OPEN : 0) | (overflowed ? FLAG_OVERFLOW : 0));
+        header.force();
+    }
+
+    private int lookup(Region r, long msb, long lsb, int key) {
+        Integer ordinal = ordinals.get(key);
+        if (ordinal == null && overflowed) {
+            return UNKNOWN;
+        }
+
+        int slot = find(r, msb, lsb);
+        if (slot < 0) {
+            return complete ? ABSENT : UNKNOWN;
+        }
+        return ordinal != null && (word(r, slot, ordinal >>> 6) & (1L << ordinal)) != 0 ? PRESENT : ABSENT;
+    }
+
+    private int assignOrdinal(int key) {
+        Integer existing = ordinals.get(key);
+        if (existing != null) {
+            return existing;
+        }
+
+        for (int ordinal = 0; ordinal < bits; ordinal++) {
+            if (keysByOrdinal[ordinal] == 0) {
+                keysByOrdinal[ordinal] = key + 1;
+                keySlots.putInt(ordinal << 2, key + 1);
+                ordinals.put(key, ordinal);
+                return ordinal;
+            }
+        }
+
+        if (!overflowed) {
+            overflowed = true;
+            writeFlags(true);
+        }
+        return -1;
+    }
+
+    private int find(Region r, long msb, long lsb) {
+        int slot = mix(msb, lsb) & r.mask;
+        for (int probes = 0; probes <= r.mask; probes++) {
+            long currentMsb = r.getLong(slot, 0, recordBytes);
+            long currentLsb = r.getLong(slot, 8, recordBytes);
+            if (currentMsb == 0 && currentLsb == 0) {
+                return -1;
+            }
+            if (currentMsb == msb && currentLsb == lsb) {
+                return slot;
+            }
+            slot = (slot + 1) & r.mask;
+        }
+        return -1;
+    }
+
+    private int insert(long msb, long lsb) {
+        if (size + 1 > (region.mask + 1) * LOAD_FACTOR) {
+            grow();
+        }
+
+        Region r = region;
+        int slot = mix(msb, lsb) & r.mask;
+        while (!isEmpty(r, slot)) {
+            slot = (slot + 1) & r.mask;
+        }
+        for (int w = 0; w < words; w++) {
+            putWord(r, slot, w, 0L);
+        }
+        r.putLong(slot, 8, recordBytes, lsb);
+        r.putLong(slot, 0, recordBytes, msb);
+        header.putInt(SIZE_OFFSET, ++size);
+        return slot;
+    }
+
+    private void grow() {
+        Region old = region;
+        Path growPath = path.resolveSibling(path.getFileName() + ".grow");
+        try {
+            Files.deleteIfExists(growPath);
+            FileChannel grown = FileChannel.open(growPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            MappedByteBuffer grownHeader = grown.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+            MappedByteBuffer grownKeys = mapKeySlots(grown);
+            for (int offset = 0; offset < keySlots.capacity(); offset += 4) {
+                grownKeys.putInt(offset, keySlots.getInt(offset));
+            }
+            Region r = map(grown, (old.mask + 1) << 1);
+
+            for (int slot = 0; slot <= old.mask; slot++) {
+                if (isEmpty(old, slot)) {
+                    continue;
+                }
+                int target = mix(old.getLong(slot, 0, recordBytes), old.getLong(slot, 8, recordBytes)) & r.mask;
+                while (!isEmpty(r, target)) {
+                    target = (target + 1) & r.mask;
+                }
+                for (int offset = 0; offset < recordBytes; offset += 8) {
+                    r.putLong(target, offset, recordBytes, old.getLong(slot, offset, recordBytes));
+                }
+            }
+
+            grownHeader.putInt(0, MAGIC);
+            grownHeader.putInt(4, FORMAT_VERSION);
+            grownHeader.putInt(CAPACITY_OFFSET, r.mask + 1);
+            grownHeader.putInt(BITS_OFFSET, bits);
+            grownHeader.putInt(SIZE_OFFSET, size);
+            grownHeader.putInt(FLAGS_OFFSET, (complete ? FLAG_COMPLETE : 0) | FLAG_OPEN | (overflowed ? FLAG_OVERFLOW : 0));
+            Files.move(growPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            channel.close();
+            channel = grown;
+            header = grownHeader;
+            keySlots = grownKeys;
+            region = r;
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to grow redemption store to " + ((old.mask + 1) << 1) + " slots", ex);
+        }
+    }
+
+    private void shiftRecords(Region r, int slot) {
+        int last;
+        while (true) {
+            last = slot;
+            slot = (slot + 1) & r.mask;
+            while (true) {
+                if (isEmpty(r, slot)) {
+                    for (int offset = 0; offset < recordBytes; offset += 8) {
+                        r.putLong(last, offset, recordBytes, 0L);
+                    }
+                    return;
+                }
+                int ideal = mix(r.getLong(slot, 0, recordBytes), r.getLong(slot, 8, recordBytes)) & r.mask;
+                if (last <= slot ? (last >= ideal || ideal > slot) : (last >= ideal && ideal > slot)) {
+                    break;
+                }
+                slot = (slot + 1) & r.mask;
+            }
+            for (int offset = 0; offset < recordBytes; offset += 8) {
+                r.putLong(last, offset, recordBytes, r.getLong(slot, offset, recordBytes));
+            }
+        }
+    }
+
+    private MappedByteBuffer mapKeySlots(FileChannel target) throws IOException {
+        return target.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES, (long) bits * 4);
+    }
+
+    private Region map(FileChannel target, int capacity) throws IOException {
+        int shift = Math.min(31 - Integer.numberOfLeadingZeros(capacity), 63 - Long.numberOfLeadingZeros(MAX_SEGMENT_BYTES / recordBytes));
+        int perSegment = 1 << shift;
+        MappedByteBuffer[] segments = new MappedByteBuffer[capacity / perSegment];
+        for (int i = 0; i < segments.length; i++) {
+            long offset = dataOffset + ((long) i << shift) * recordBytes;
+            segments[i] = target.map(FileChannel.MapMode.READ_WRITE, offset, (long) perSegment * recordBytes);
+        }
+        return new Region(segments, capacity - 1, shift);
+    }
+
+    private boolean isEmpty(Region r, int slot) {
+        return r.getLong(slot, 0, recordBytes) == 0 && r.getLong(slot, 8, recordBytes) == 0;
+    }
+
+    private long word(Region r, int slot, int word) {
+        return r.getLong(slot, 16 + (word << 3), recordBytes);
+    }
+
+    private void putWord(Region r, int slot, int word, long value) {
+        r.putLong(slot, 16 + (word << 3), recordBytes, value);
+    }
+
+    private static int roundBits(int maxKeys) {
+        return (Math.max(1, maxKeys) + 63) & ~63;
+    }
+
+    private static int mix(long msb, long lsb) {
+        long h = (msb ^ Long.rotateLeft(lsb, 32)) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(Math.max(2, capacity) - 1);
+        return n < 0 ? 1 : n + 1;
+    }
+
+    private static final class Region {
+        final MappedByteBuffer[] segments;
+        final int mask;
+        final int shift;
+        final int segmentMask;
+
+        Region(MappedByteBuffer[] segments, int mask, int shift) {
+            this.segments = segments;
+            this.mask = mask;
+            this.shift = shift;
+            this.segmentMask = (1 << shift) - 1;
+        }
+
+        long getLong(int slot, int offset, int recordBytes) {
+            return segments[slot >>> shift].getLong((slot & segmentMask) * recordBytes + offset);
+        }
+
+        void putLong(int slot, int offset, int recordBytes, long value) {
+            segments[slot >>> shift].putLong((slot & segmentMask) * recordBytes + offset, value);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package it.dominick.th.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+public class TimingWheel<T> {
+
+    private final List<ArrayDeque<Timeout<T>>> slots;
+    private final int mask;
+    private int cursor;
+    private int size;
+
+    public TimingWheel(int slotCount) {
+        int capacity = Integer.highestOneBit(Math.max(2, slotCount - 1)) << 1;
+        this.slots = new ArrayList<>(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots.add(new ArrayDeque<>());
+        }
+        this.mask = capacity - 1;
+    }
+
+    public Timeout<T> schedule(T value, int ticks) {
+        int delay = Math.max(1, ticks);
+        Timeout<T> timeout = new Timeout<>(value, (delay - 1) / slots.size());
+        slots.get((cursor + delay) & mask).add(timeout);
+        size++;
+        return timeout;
+    }
+
+    public void advance(Consumer<T> expired) {
+        cursor = (cursor + 1) & mask;
+        Iterator<Timeout<T>> it = slots.get(cursor).iterator();
+        while (it.hasNext()) {
+            Timeout<T> timeout = it.next();
+            if (timeout.cancelled) {
+                it.remove();
+                size--;
+            } else if (timeout.rounds > 0) {
+                timeout.rounds--;
+            } else {
+                it.remove();
+                size--;
+                timeout.cancelled = true;
+                expired.accept(timeout.value);
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public static final class Timeout<T> {
+        private final T value;
+        private int rounds;
+        private boolean cancelled;
+
+        private Timeout(T value, int rounds) {
+            this.value = value;
+            this.rounds = rounds;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
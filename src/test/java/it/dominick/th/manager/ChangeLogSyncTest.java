@@ -0,0 +1,172 @@
+package it.dominick.th.manager;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.ChangeEntry;
+import it.dominick.th.model.ChangeType;
+import it.dominick.th.model.TreasureRecord;
+import it.dominick.th.repository.DatabaseRepository;
+import it.dominick.th.repository.TreasureRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.MockedStatic;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+class ChangeLogSyncTest {
+
+    private static final long GAP_GRACE_MILLIS = 2000L;
+
+    @TempDir
+    static Path dataFolder;
+
+    private static MockedStatic<TreasureHunt> instance;
+    private static DatabaseRepository dbA;
+    private static DatabaseRepository dbB;
+    private static TreasureRepository nodeA;
+    private static TreasureRepository nodeB;
+
+    private long lastSeen;
+
+    @BeforeAll
+    static void startNodes() {
+        instance = mockStatic(TreasureHunt.class);
+        dbA = database("node-a");
+        nodeA = new TreasureRepository(dbA);
+        dbB = database("node-b");
+        nodeB = new TreasureRepository(dbB);
+
+        nodeA.createTableIfNotExists().join();
+        nodeB.createTableIfNotExists().join();
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        dbA.close();
+        dbB.close();
+        instance.close();
+    }
+
+    @BeforeEach
+    void skipExistingChanges() {
+        lastSeen = nodeB.getLatestChangeId().join();
+    }
+
+    @Test
+    void createAndDeletePropagate() {
+        TreasureRecord created = nodeA.insertTreasure("sync-create", "world", 1, 64, 1, "say hi").join();
+        assertNotNull(created);
+
+        ChangeEntry upsert = single(ChangeType.TREASURE_UPSERT);
+        assertEquals("node-a", upsert.getOrigin());
+        assertEquals("sync-create", upsert.getTreasureId());
+        List<TreasureRecord> seen = nodeB.getTreasuresByIds(Set.of(upsert.getTreasureId())).join();
+        assertEquals(1, seen.size());
+        assertEquals(created.getKey(), seen.get(0).getKey());
+
+        assertEquals(1, nodeA.deleteTreasure("sync-create").join());
+        ChangeEntry delete = single(ChangeType.TREASURE_DELETE);
+        assertEquals("sync-create", delete.getTreasureId());
+        assertTrue(nodeB.getTreasuresByIds(Set.of("sync-create")).join().isEmpty());
+    }
+
+    @Test
+    void redeemPropagates() {
+        TreasureRecord treasure = nodeA.insertTreasure("sync-redeem", "world", 2, 64, 2, "say hi").join();
+        single(ChangeType.TREASURE_UPSERT);
+        UUID player = UUID.randomUUID();
+
+        nodeA.addRedeemed(player, treasure.getKey()).join();
+        assertTrue(nodeB.getChangesAfter(lastSeen, 100).join().isEmpty());
+        assertEquals(1, nodeA.flushClaimCounts().join());
+        ChangeEntry redeem = single(ChangeType.REDEEM_ADD);
+        assertEquals("node-a", redeem.getOrigin());
+        assertEquals(player, redeem.getPlayer());
+        assertEquals(treasure.getKey(), redeem.getTreasureKey());
+        assertTrue(nodeB.isRedeemed(player, treasure.getKey()).join());
+        assertEquals(1, nodeB.getPlayerCounts(List.of(player)).join().get(player));
+        assertEquals(1, nodeB.getTreasureCounts(List.of(treasure.getKey())).join().get(treasure.getKey()));
+    }
+
+    @Test
+    void waitsForLateCommitThenAppliesInOrder() throws Exception {
+        try (Connection conn = dbA.getDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO th_changelog (origin, type, treasure_key) VALUES ('node-a', ?, 0)")) {
+            conn.setAutoCommit(false);
+            ps.setInt(1, ChangeType.COUNTS_REBUILD.getCode());
+            ps.executeUpdate();
+
+            nodeA.insertTreasure("sync-gap", "world", 3, 64, 3, "say hi").join();
+            List<ChangeEntry> beforeCommit = nodeB.getChangesAfter(lastSeen, 100).join();
+            assertEquals(1, beforeCommit.size());
+            assertEquals(0, ChangeLogPoller.readyCount(beforeCommit, lastSeen, GAP_GRACE_MILLIS));
+
+            conn.commit();
+        }
+
+        List<ChangeEntry> afterCommit = nodeB.getChangesAfter(lastSeen, 100).join();
+        assertEquals(2, afterCommit.size());
+        assertEquals(ChangeType.COUNTS_REBUILD, afterCommit.get(0).getType());
+        assertEquals(2, ChangeLogPoller.readyCount(afterCommit, lastSeen, GAP_GRACE_MILLIS));
+    }
+
+    @Test
+    void skipsGapOlderThanGrace() throws Exception {
+        try (Connection conn = dbA.getDataSource().getConnection();
+             PreparedStatement ps = conn.prepareStatement("INSERT INTO th_changelog (origin, type, treasure_key) VALUES ('node-a', ?, 0)")) {
+            conn.setAutoCommit(false);
+            ps.setInt(1, ChangeType.COUNTS_REBUILD.getCode());
+            ps.executeUpdate();
+            conn.rollback();
+        }
+
+        nodeA.insertTreasure("sync-hole", "world", 4, 64, 4, "say hi").join();
+        List<ChangeEntry> batch = nodeB.getChangesAfter(lastSeen, 100).join();
+        assertEquals(1, batch.size());
+        assertEquals(0, ChangeLogPoller.readyCount(batch, lastSeen, GAP_GRACE_MILLIS));
+        assertEquals(1, ChangeLogPoller.readyCount(batch, lastSeen, 0L));
+    }
+
+    private ChangeEntry single(ChangeType type) {
+        List<ChangeEntry> batch = nodeB.getChangesAfter(lastSeen, 100).join();
+        assertEquals(1, batch.size(), "changes after " + lastSeen + ": " + batch);
+        assertEquals(1, ChangeLogPoller.readyCount(batch, lastSeen, GAP_GRACE_MILLIS));
+        ChangeEntry entry = batch.get(0);
+        assertEquals(type, entry.getType());
+        lastSeen = entry.getId();
+        return entry;
+    }
+
+    private static DatabaseRepository database(String nodeId) {
+        ConfigManager config = mock(ConfigManager.class, invocation -> invocation.getArguments().length == 3 ? invocation.getArgument(2) : null);
+        doReturn("h2").when(config).getString(ConfigFile.CONFIG, "database.type");
+        doReturn(true).when(config).getBooleanOrDefault(ConfigFile.CONFIG, "database.autoServer", false);
+        doReturn(true).when(config).getBooleanOrDefault(ConfigFile.CONFIG, "sync.enabled", false);
+        doReturn(nodeId).when(config).getStringOrDefault(ConfigFile.CONFIG, "sync.nodeId", "");
+
+        TreasureHunt plugin = mock(TreasureHunt.class);
+        when(plugin.getConfigManager()).thenReturn(config);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger(nodeId));
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+        instance.when(TreasureHunt::getInstance).thenReturn(plugin);
+        return new DatabaseRepository();
+    }
+}
@@ -0,0 +1,116 @@
+package it.dominick.th.repository;
+
+import it.dominick.th.TreasureHunt;
+import it.dominick.th.config.ConfigFile;
+import it.dominick.th.config.ConfigManager;
+import it.dominick.th.model.RedemptionRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedemptionWriteQueueTest {
+
+    private MockedStatic<TreasureHunt> instance;
+    private TreasureStorage treasureRepo;
+    private RedemptionJournal journal;
+    private RedemptionWriteQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        ConfigManager config = mock(ConfigManager.class, invocation -> invocation.getArguments().length == 3 ? invocation.getArgument(2) : null);
+        doReturn(true).when(config).getBooleanOrDefault(ConfigFile.CONFIG, "database.writeBehind.enabled", false);
+        doReturn(10L).when(config).getLongOrDefault(ConfigFile.CONFIG, "database.writeBehind.flushIntervalMillis", 250L);
+        doReturn(2).when(config).getIntOrDefault(ConfigFile.CONFIG, "database.writeBehind.batchSize", 200);
+
+        TreasureHunt plugin = mock(TreasureHunt.class);
+        when(plugin.getConfigManager()).thenReturn(config);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger("write-queue"));
+        instance = mockStatic(TreasureHunt.class);
+        instance.when(TreasureHunt::getInstance).thenReturn(plugin);
+
+        treasureRepo = mock(TreasureStorage.class);
+        when(treasureRepo.isAvailable()).thenReturn(true);
+        when(treasureRepo.flushClaimCounts()).thenReturn(CompletableFuture.completedFuture(0));
+        journal = mock(RedemptionJournal.class);
+        when(journal.append(any(RedemptionRecord.class))).thenReturn(CompletableFuture.completedFuture(true));
+        when(journal.append(anyList())).thenReturn(CompletableFuture.completedFuture(true));
+        queue = new RedemptionWriteQueue(treasureRepo, journal);
+    }
+
+    @AfterEach
+    void tearDown() {
+        queue.close();
+        instance.close();
+    }
+
+    @Test
+    void cancelWaitsForTheInFlightBatch() {
+        CompletableFuture<Integer> insert = new CompletableFuture<>();
+        when(treasureRepo.addRedeemedBatch(anyList())).thenReturn(insert);
+        RedemptionRecord first = record(1);
+        assertTrue(queue.offer(first));
+        assertTrue(queue.offer(record(2)));
+        verify(treasureRepo, timeout(2000)).addRedeemedBatch(anyList());
+
+        CompletableFuture<Boolean> cancelled = queue.cancel(first.getPlayer(), first.getTreasureKey());
+        assertFalse(cancelled.isDone());
+        insert.complete(2);
+        assertTrue(cancelled.join());
+    }
+
+    @Test
+    void cancelledRecordIsNotRetried() {
+        CompletableFuture<Integer> insert = new CompletableFuture<>();
+        when(treasureRepo.addRedeemedBatch(anyList())).thenReturn(insert, CompletableFuture.completedFuture(-1));
+        RedemptionRecord first = record(1);
+        RedemptionRecord second = record(2);
+        queue.offer(first);
+        queue.offer(second);
+        verify(treasureRepo, timeout(2000)).addRedeemedBatch(anyList());
+
+        CompletableFuture<Boolean> cancelled = queue.cancel(first.getPlayer(), first.getTreasureKey());
+        insert.complete(-1);
+        assertTrue(cancelled.join());
+        verify(journal, timeout(2000)).append(second);
+        verify(journal, never()).append(first);
+    }
+
+    @Test
+    void splitsAndJournalsAPoisonBatch() {
+        RedemptionRecord good = record(1);
+        RedemptionRecord poison = record(2);
+        when(treasureRepo.addRedeemedBatch(anyList())).thenAnswer(invocation -> {
+            List<RedemptionRecord> batch = invocation.getArgument(0);
+            return CompletableFuture.completedFuture(batch.contains(poison) ? -1 : batch.size());
+        });
+        queue.offer(good);
+        queue.offer(poison);
+
+        verify(journal, timeout(2000)).append(poison);
+        verify(treasureRepo).addRedeemedBatch(argThat(batch -> batch.size() == 1 && batch.get(0) == good));
+        verify(journal, never()).append(good);
+    }
+
+    private static RedemptionRecord record(int treasureKey) {
+        return new RedemptionRecord(UUID.randomUUID(), treasureKey, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,71 @@
+package it.dominick.th.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedRedemptionTableTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tracksKeysAboveTheBitsetSize() throws Exception {
+        MappedRedemptionTable table = MappedRedemptionTable.create(dir.resolve("keys.store"), 128, 16);
+        assertTrue(table.set(1, 1, 200, true));
+        assertTrue(table.set(1, 1, 5000, true));
+
+        assertArrayEquals(new int[]{200, 5000}, table.keys(1, 1));
+        assertEquals(MappedRedemptionTable.PRESENT, table.state(1, 1, 200));
+        assertEquals(MappedRedemptionTable.ABSENT, table.state(1, 1, 201));
+
+        for (int player = 2; player < 40; player++) {
+            table.set(player, player, 200, true);
+        }
+        assertArrayEquals(new int[]{200, 5000}, table.keys(1, 1));
+        assertArrayEquals(new int[]{200}, table.keys(39, 39));
+        table.close();
+    }
+
+    @Test
+    void reportsUnknownOnceFull() throws Exception {
+        MappedRedemptionTable table = MappedRedemptionTable.create(dir.resolve("full.store"), 64, 16);
+        for (int key = 1; key <= 64; key++) {
+            assertTrue(table.set(1, 1, key, true));
+        }
+        assertFalse(table.set(2, 2, 1000, true));
+
+        assertTrue(table.isOverflowed());
+        assertNull(table.keys(1, 1));
+        assertNull(table.keys(2, 2));
+        assertEquals(MappedRedemptionTable.UNKNOWN, table.state(2, 2, 1000));
+        assertEquals(MappedRedemptionTable.PRESENT, table.state(1, 1, 64));
+        table.close();
+    }
+
+    @Test
+    void keepsOrdinalsAcrossReopen() throws Exception {
+        Path path = dir.resolve("reopen.store");
+        MappedRedemptionTable table = MappedRedemptionTable.create(path, 64, 16);
+        table.put(1, 1, List.of(300, 7));
+        table.set(2, 2, 900, true);
+        table.clearKey(7);
+        table.setComplete(true);
+        table.close();
+
+        MappedRedemptionTable reopened = MappedRedemptionTable.open(path, 64, 16);
+        assertTrue(reopened.isComplete());
+        assertArrayEquals(new int[]{300}, reopened.keys(1, 1));
+        assertArrayEquals(new int[]{900}, reopened.keys(2, 2));
+        assertEquals(MappedRedemptionTable.ABSENT, reopened.state(1, 1, 7));
+        reopened.close();
+    }
+}